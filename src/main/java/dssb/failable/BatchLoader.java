@@ -0,0 +1,210 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import lombok.val;
+
+/**
+ * A per-key failable function whose calls are grouped into calls of a batch function.
+ * 
+ * The keys requested within the window after the first one (or until the batch is full)
+ *   are given to the batch function together, and each caller gets the value of its key from the returned map.
+ * A key that is not in the map gets {@code null} or, if a missing-key failure is given,
+ *   the exception it makes for that key -- so one key can fail while the rest of the batch succeeds.
+ * If the batch function fails, every caller of that batch gets the exception.
+ * The same key requested more than once in a batch is only given to the batch function once.
+ * 
+ * The synchronous {@link #apply(Object)} waits for the batch so it only batches calls from different threads;
+ *   a thread that needs many keys should {@link #load(Object) load} them all first and then wait for the futures.
+ * 
+ * @param <K>  the key type.
+ * @param <V>  the value type.
+ * @param <T>  the type of the thrown exception.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+public final class BatchLoader<K, V, T extends Throwable> implements Failable.Function<K, V, T> {
+    
+    private final Failable.Function<List<K>, Map<K, V>, T> batchFunction;
+    private final Function<? super K, ? extends T>         missingKeyFailure;
+    private final long                                     window;
+    private final int                                      maxBatchSize;
+    private final ScheduledExecutorService                 scheduler;
+    
+    private Map<K, CompletableFuture<V>> pending   = new LinkedHashMap<>();
+    private boolean                      scheduled = false;
+    
+    /**
+     * Constructor.
+     * 
+     * @param batchFunction  the batch function.
+     * @param window         the time to wait for more keys after the first key of a batch.
+     * @param unit           the time unit of the window.
+     * @param maxBatchSize   the maximum number of keys in a batch.
+     * @param scheduler      the scheduler to run the batch function with.
+     **/
+    public BatchLoader(
+            Failable.Function<List<K>, Map<K, V>, T>  batchFunction,
+            long                                      window,
+            TimeUnit                                  unit,
+            int                                       maxBatchSize,
+            ScheduledExecutorService                  scheduler) {
+        this(batchFunction, null, window, unit, maxBatchSize, scheduler);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param batchFunction      the batch function.
+     * @param missingKeyFailure  the function making the exception for a key missing from the result (or {@code null}).
+     * @param window             the time to wait for more keys after the first key of a batch.
+     * @param unit               the time unit of the window.
+     * @param maxBatchSize       the maximum number of keys in a batch.
+     * @param scheduler          the scheduler to run the batch function with.
+     **/
+    public BatchLoader(
+            Failable.Function<List<K>, Map<K, V>, T>  batchFunction,
+            Function<? super K, ? extends T>          missingKeyFailure,
+            long                                      window,
+            TimeUnit                                  unit,
+            int                                       maxBatchSize,
+            ScheduledExecutorService                  scheduler) {
+        if (maxBatchSize <= 0)
+            throw new IllegalArgumentException("Max batch size must be positive: " + maxBatchSize);
+        
+        this.batchFunction     = batchFunction;
+        this.missingKeyFailure = missingKeyFailure;
+        this.window            = unit.toNanos(window);
+        this.maxBatchSize      = maxBatchSize;
+        this.scheduler         = scheduler;
+    }
+    
+    /**
+     * Request the value of the given key.
+     * 
+     * @param key  the key.
+     * @return  the future of the value.
+     **/
+    public CompletableFuture<V> load(K key) {
+        CompletableFuture<V>         future;
+        Map<K, CompletableFuture<V>> full     = null;
+        boolean                      schedule = false;
+        synchronized (this) {
+            future = pending.get(key);
+            if (future != null)
+                return future;
+            
+            future = new CompletableFuture<V>();
+            pending.put(key, future);
+            if (pending.size() >= maxBatchSize) {
+                full    = pending;
+                pending = new LinkedHashMap<>();
+            } else if (!scheduled) {
+                scheduled = true;
+                schedule  = true;
+            }
+        }
+        
+        try {
+            if (full != null) {
+                val batch = full;
+                scheduler.execute(() -> call(batch));
+            } else if (schedule) {
+                scheduler.schedule(this::dispatch, window, TimeUnit.NANOSECONDS);
+            }
+        } catch (RejectedExecutionException exception) {
+            if (full != null)
+                call(full);
+            else
+                dispatch();
+        }
+        return future;
+    }
+    
+    /**
+     * Request the value of the given key and wait for it.
+     * 
+     * If there is a current deadline, the wait is limited by it.
+     * 
+     * @param key  the key.
+     * @return  the value.
+     * @throws T  the exception thrown by the batch function.
+     **/
+    @Override
+    public V apply(K key) throws T {
+        Deadline.check();
+        val future   = load(key);
+        val deadline = Deadline.current();
+        try {
+            return (deadline == null)
+                    ? future.get()
+                    : future.get(Math.max(0, deadline.remaining(TimeUnit.NANOSECONDS)), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw FailableException.<T>rethrow(e.getCause());
+        } catch (TimeoutException e) {
+            throw DeadlineExceededException.INSTANCE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FailableException(e);
+        }
+    }
+    
+    /**
+     * Call the batch function with the pending keys now (in the current thread).
+     **/
+    public void dispatch() {
+        Map<K, CompletableFuture<V>> batch;
+        synchronized (this) {
+            batch     = pending;
+            pending   = new LinkedHashMap<>();
+            scheduled = false;
+        }
+        if (!batch.isEmpty())
+            call(batch);
+    }
+    
+    private void call(Map<K, CompletableFuture<V>> batch) {
+        try {
+            val results = batchFunction.apply(new ArrayList<K>(batch.keySet()));
+            for (val entry : batch.entrySet()) {
+                val key    = entry.getKey();
+                val future = entry.getValue();
+                if ((results != null) && results.containsKey(key))
+                    future.complete(results.get(key));
+                else if (missingKeyFailure != null)
+                    future.completeExceptionally(missingKeyFailure.apply(key));
+                else
+                    future.complete(null);
+            }
+        } catch (Throwable exception) {
+            for (val future : batch.values())
+                future.completeExceptionally(exception);
+        }
+    }
+    
+}
@@ -0,0 +1,109 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import lombok.val;
+
+/**
+ * Runnable that collapses the calls made while the body is pending or running into at most one more run.
+ * 
+ * Calls made while the run is queued but not yet started are covered by that run.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+final class CoalescingRunnable implements java.lang.Runnable {
+    
+    private static final int IDLE    = 0;
+    private static final int QUEUED  = 1;
+    private static final int RUNNING = 2;
+    private static final int PENDING = 3;
+    
+    private final Failable.Runnable<?>          body;
+    private final Executor                      executor;
+    private final Consumer<? super Throwable>   onFailure;
+    
+    private final AtomicInteger      state = new AtomicInteger(IDLE);
+    private final java.lang.Runnable drain = this::drain;
+    
+    CoalescingRunnable(Failable.Runnable<?> body, Executor executor, Consumer<? super Throwable> onFailure) {
+        this.body      = body;
+        this.executor  = executor;
+        this.onFailure = onFailure;
+    }
+    
+    @Override
+    public void run() {
+        while (true) {
+            val current = state.get();
+            if (current == IDLE) {
+                if (state.compareAndSet(IDLE, QUEUED)) {
+                    submit();
+                    return;
+                }
+            } else if (current == RUNNING) {
+                if (state.compareAndSet(RUNNING, PENDING))
+                    return;
+            } else {
+                // Queued (not started yet) or already pending -- the coming run covers this call.
+                return;
+            }
+        }
+    }
+    
+    private void submit() {
+        try {
+            executor.execute(drain);
+        } catch (RejectedExecutionException exception) {
+            state.set(IDLE);
+            report(onFailure, exception);
+        }
+    }
+    
+    private void drain() {
+        state.set(RUNNING);
+        while (true) {
+            try {
+                body.run();
+            } catch (Throwable exception) {
+                report(onFailure, exception);
+            }
+            if (state.compareAndSet(RUNNING, IDLE))
+                return;
+            
+            // Called while running -- run once more for all those calls.
+            state.set(RUNNING);
+        }
+    }
+    
+    static void report(Consumer<? super Throwable> onFailure, Throwable exception) {
+        try {
+            if (onFailure != null) {
+                onFailure.accept(exception);
+            } else {
+                val thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, exception);
+            }
+        } catch (Throwable ignored) {
+            // The failure handler must not break the state machine.
+        }
+    }
+    
+}
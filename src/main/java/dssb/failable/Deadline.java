@@ -0,0 +1,173 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.val;
+
+/**
+ * The deadline of the work being done by the current thread.
+ * 
+ * When a deadline is in effect, the graceful and careless forms of the failables check it before running
+ *   their bodies and fail fast with {@link DeadlineExceededException} once it has passed.
+ * Deadlines nest -- running with a deadline inside another one uses whichever is earlier.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+public final class Deadline {
+    
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<>();
+    
+    private final long expiry;
+    
+    private Deadline(long expiry) {
+        this.expiry = expiry;
+    }
+    
+    /**
+     * Create a deadline that is the given duration from now.
+     * 
+     * @param duration  the duration.
+     * @param unit      the time unit of the duration.
+     * @return  the deadline.
+     **/
+    public static Deadline after(long duration, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(duration));
+    }
+    
+    /**
+     * Returns the deadline in effect for the current thread.
+     * 
+     * @return  the current deadline or {@code null} if there is none.
+     **/
+    public static Deadline current() {
+        return current.get();
+    }
+    
+    /**
+     * Check the current deadline.
+     * 
+     * @throws DeadlineExceededException  if the current deadline has passed.
+     **/
+    public static void check() throws DeadlineExceededException {
+        val deadline = current.get();
+        if ((deadline != null) && deadline.isExpired())
+            throw DeadlineExceededException.INSTANCE;
+    }
+    
+    /**
+     * Check if this deadline has passed.
+     * 
+     * @return  {@code true} if this deadline has passed.
+     **/
+    public boolean isExpired() {
+        return (System.nanoTime() - expiry) >= 0;
+    }
+    
+    /**
+     * Returns the time remaining until this deadline.
+     * 
+     * @param unit  the time unit of the returned value.
+     * @return  the remaining time (zero or negative if the deadline has passed).
+     **/
+    public long remaining(TimeUnit unit) {
+        return unit.convert(expiry - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Run the given supplier with this deadline in effect.
+     * 
+     * @param body  the body.
+     * @return  the result of the body.
+     * @throws T  the thrown exception.
+     * 
+     * @param <V>  the type of the return value.
+     * @param <T>  the type of the thrown exception.
+     **/
+    public <V, T extends Throwable> V call(Failable.Supplier<V, T> body) throws T {
+        val previous  = current.get();
+        val effective = ((previous != null) && ((previous.expiry - expiry) < 0)) ? previous : this;
+        current.set(effective);
+        try {
+            effective.checkExpired();
+            return body.get();
+        } finally {
+            restore(previous);
+        }
+    }
+    
+    /**
+     * Run the given runnable with this deadline in effect.
+     * 
+     * @param body  the body.
+     * @throws T  the thrown exception.
+     * 
+     * @param <T>  the type of the thrown exception.
+     **/
+    public <T extends Throwable> void run(Failable.Runnable<T> body) throws T {
+        call(() -> {
+            body.run();
+            return null;
+        });
+    }
+    
+    /**
+     * Make the given task run with the current deadline (if any) when it is run by another thread.
+     * 
+     * @param task  the task.
+     * @return  the task that carries the current deadline.
+     **/
+    public static java.lang.Runnable propagate(java.lang.Runnable task) {
+        val deadline = current.get();
+        if (deadline == null)
+            return task;
+        
+        return () -> deadline.call(() -> {
+            task.run();
+            return null;
+        });
+    }
+    
+    /**
+     * Make the given supplier run with the current deadline (if any) when it is run by another thread.
+     * 
+     * @param supplier  the supplier.
+     * @return  the supplier that carries the current deadline.
+     * 
+     * @param <V>  the type of the return value.
+     **/
+    public static <V> java.util.function.Supplier<V> propagate(java.util.function.Supplier<V> supplier) {
+        val deadline = current.get();
+        if (deadline == null)
+            return supplier;
+        
+        return () -> deadline.call(supplier::get);
+    }
+    
+    private void checkExpired() {
+        if (isExpired())
+            throw DeadlineExceededException.INSTANCE;
+    }
+    
+    private static void restore(Deadline previous) {
+        if (previous == null)
+            current.remove();
+        else
+            current.set(previous);
+    }
+    
+}
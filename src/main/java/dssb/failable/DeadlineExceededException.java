@@ -0,0 +1,36 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+/**
+ * This exception is thrown when a failable is about to run after the current deadline has passed.
+ * 
+ * There is only one instance of this exception and it has no stack trace so throwing it is cheap.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+public final class DeadlineExceededException extends FailableException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /** The one and only instance. */
+    public static final DeadlineExceededException INSTANCE = new DeadlineExceededException();
+    
+    private DeadlineExceededException() {
+        super("Deadline exceeded.", false);
+    }
+    
+}
@@ -0,0 +1,111 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import lombok.val;
+
+/**
+ * Runnable that runs the body once no call has been made for the delay,
+ *   collapsing the calls made while the body is running into one more run.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+final class DebouncedRunnable implements java.lang.Runnable {
+    
+    private static final int IDLE      = 0;
+    private static final int SCHEDULED = 1;
+    private static final int RUNNING   = 2;
+    private static final int PENDING   = 3;
+    
+    private final Failable.Runnable<?>          body;
+    private final long                          delay;
+    private final ScheduledExecutorService      scheduler;
+    private final Consumer<? super Throwable>   onFailure;
+    
+    private final AtomicInteger      state = new AtomicInteger(IDLE);
+    private final java.lang.Runnable fire  = this::fire;
+    
+    private volatile long lastCall;
+    
+    DebouncedRunnable(
+            Failable.Runnable<?>          body,
+            long                          delay,
+            TimeUnit                      unit,
+            ScheduledExecutorService      scheduler,
+            Consumer<? super Throwable>   onFailure) {
+        this.body      = body;
+        this.delay     = unit.toNanos(delay);
+        this.scheduler = scheduler;
+        this.onFailure = onFailure;
+    }
+    
+    @Override
+    public void run() {
+        lastCall = System.nanoTime();
+        while (true) {
+            val current = state.get();
+            if (current == IDLE) {
+                if (state.compareAndSet(IDLE, SCHEDULED)) {
+                    schedule(delay);
+                    return;
+                }
+            } else if (current == RUNNING) {
+                if (state.compareAndSet(RUNNING, PENDING))
+                    return;
+            } else {
+                // Already scheduled -- the new call time postpones it.
+                return;
+            }
+        }
+    }
+    
+    private void schedule(long nanos) {
+        try {
+            scheduler.schedule(fire, nanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException exception) {
+            state.set(IDLE);
+            CoalescingRunnable.report(onFailure, exception);
+        }
+    }
+    
+    private void fire() {
+        val wait = (lastCall + delay) - System.nanoTime();
+        if (wait > 0) {
+            schedule(wait);
+            return;
+        }
+        
+        state.set(RUNNING);
+        try {
+            body.run();
+        } catch (Throwable exception) {
+            CoalescingRunnable.report(onFailure, exception);
+        }
+        if (state.compareAndSet(RUNNING, IDLE))
+            return;
+        
+        // Called while running -- debounce those calls again.
+        state.set(SCHEDULED);
+        schedule(Math.max(0, (lastCall + delay) - System.nanoTime()));
+    }
+    
+}
@@ -15,6 +15,14 @@
 //  ========================================================================
 package dssb.failable;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import lombok.val;
 
 /**
@@ -78,6 +86,7 @@ public class Failable {
         public default java.lang.Runnable gracefully() {
             return () -> {
                 try {
+                    Deadline.check();
                     run();
                 } catch (FailableException t) {
                     throw t;
@@ -95,12 +104,69 @@ public class Failable {
         public default java.lang.Runnable carelessly() {
             return () -> {
                 try {
+                    Deadline.check();
                     run();
                 } catch (Throwable t) {
                 }
             };
         }
         
+        /**
+         * Convert to a regular runnable that runs this runnable with the executor,
+         *   collapsing the calls made while it is pending or running into at most one more run.
+         * The exceptions are given to the uncaught exception handler of the running thread.
+         * 
+         * @param executor  the executor.
+         * @return Java's Runnable.
+         **/
+        public default java.lang.Runnable coalescing(Executor executor) {
+            return coalescing(executor, null);
+        }
+        
+        /**
+         * Convert to a regular runnable that runs this runnable with the executor,
+         *   collapsing the calls made while it is pending or running into at most one more run.
+         * 
+         * @param executor   the executor.
+         * @param onFailure  the consumer of the exceptions.
+         * @return Java's Runnable.
+         **/
+        public default java.lang.Runnable coalescing(Executor executor, java.util.function.Consumer<? super Throwable> onFailure) {
+            return new CoalescingRunnable(this, executor, onFailure);
+        }
+        
+        /**
+         * Convert to a regular runnable that runs this runnable with the scheduler once it has not been called
+         *   for the given delay, collapsing the calls made while it is running into one more (debounced) run.
+         * The exceptions are given to the uncaught exception handler of the running thread.
+         * 
+         * @param delay      the delay.
+         * @param unit       the time unit of the delay.
+         * @param scheduler  the scheduler.
+         * @return Java's Runnable.
+         **/
+        public default java.lang.Runnable debounced(long delay, TimeUnit unit, ScheduledExecutorService scheduler) {
+            return debounced(delay, unit, scheduler, null);
+        }
+        
+        /**
+         * Convert to a regular runnable that runs this runnable with the scheduler once it has not been called
+         *   for the given delay, collapsing the calls made while it is running into one more (debounced) run.
+         * 
+         * @param delay      the delay.
+         * @param unit       the time unit of the delay.
+         * @param scheduler  the scheduler.
+         * @param onFailure  the consumer of the exceptions.
+         * @return Java's Runnable.
+         **/
+        public default java.lang.Runnable debounced(
+                long                                            delay,
+                TimeUnit                                        unit,
+                ScheduledExecutorService                        scheduler,
+                java.util.function.Consumer<? super Throwable>  onFailure) {
+            return new DebouncedRunnable(this, delay, unit, scheduler, onFailure);
+        }
+        
     }
     
     /**
@@ -148,6 +214,34 @@ public class Failable {
             return ()->this.get();
         }
         
+        /**
+         * Recover from the exception of the given type (or its subtypes) using the given handler.
+         * 
+         * @param type     the type of the exception.
+         * @param handler  the handler to calculate the value from the exception.
+         * @return  the recoverable supplier.
+         * 
+         * @param <E>  the type of the exception to recover from.
+         **/
+        public default <E extends Throwable> Supplier<V, T> recover(
+                Class<E>                                type,
+                Function<? super E, ? extends V, T>     handler) {
+            return new Recoverable.Supplier<V, T>(this, Recoverable.Handlers.empty()).recover(type, handler);
+        }
+        
+        /**
+         * Recover from the exception of the given type (or its subtypes) using the given fallback supplier.
+         * 
+         * @param type      the type of the exception.
+         * @param fallback  the fallback supplier.
+         * @return  the recoverable supplier.
+         * 
+         * @param <E>  the type of the exception to recover from.
+         **/
+        public default <E extends Throwable> Supplier<V, T> recoverWith(Class<E> type, Supplier<? extends V, T> fallback) {
+            return new Recoverable.Supplier<V, T>(this, Recoverable.Handlers.empty()).recoverWith(type, fallback);
+        }
+        
         /**
          * Convert to a regular supplier and throw FailableException if there is an exception. 
          * 
@@ -156,6 +250,7 @@ public class Failable {
         public default java.util.function.Supplier<V> gracefully() {
             return () -> {
                 try {
+                    Deadline.check();
                     return get();
                 } catch (FailableException t) {
                     throw t;
@@ -173,6 +268,7 @@ public class Failable {
         public default java.util.function.Supplier<V> carelessly() {
             return () -> {
                 try {
+                    Deadline.check();
                     return get();
                 } catch (Throwable t) {
                     return null;
@@ -270,6 +366,7 @@ public class Failable {
         public default java.util.function.Consumer<V> gracefully() {
             return v -> {
                 try {
+                    Deadline.check();
                     accept(v);
                 } catch (FailableException t) {
                     throw t;
@@ -287,6 +384,7 @@ public class Failable {
         public default java.util.function.Consumer<V> carelessly() {
             return v -> {
                 try {
+                    Deadline.check();
                     accept(v);
                 } catch (Throwable t) {
                 }
@@ -369,6 +467,53 @@ public class Failable {
             };
         }
         
+        /**
+         * Create a function that memoizes the results of this function in the given file.
+         * 
+         * @param path        the path of the cache file.
+         * @param keyCodec    the codec of the input values.
+         * @param valueCodec  the codec of the returned values.
+         * @return  the cached function -- to be closed when no longer used.
+         * @throws IOException  when the cache file cannot be opened.
+         **/
+        public default PersistentCache<V, R, T> persistentlyCached(
+                Path                        path,
+                PersistentCache.Codec<V>    keyCodec,
+                PersistentCache.Codec<R>    valueCodec) throws IOException {
+            return new PersistentCache<V, R, T>(this, path, keyCodec, valueCodec);
+        }
+        
+        /**
+         * Recover from the exception of the given type (or its subtypes) using the given handler.
+         * 
+         * @param type     the type of the exception.
+         * @param handler  the handler to calculate the returned value from the exception.
+         * @return  the recoverable function.
+         * 
+         * @param <E>  the type of the exception to recover from.
+         **/
+        public default <E extends Throwable> Function<V, R, T> recover(
+                Class<E>                                type,
+                Function<? super E, ? extends R, T>     handler) {
+            return new Recoverable.Function<V, R, T>(this, Recoverable.Handlers.empty()).recover(type, handler);
+        }
+        
+        /**
+         * Recover from the exception of the given type (or its subtypes) by applying the given fallback function
+         *   to the same input value.
+         * 
+         * @param type      the type of the exception.
+         * @param fallback  the fallback function.
+         * @return  the recoverable function.
+         * 
+         * @param <E>  the type of the exception to recover from.
+         **/
+        public default <E extends Throwable> Function<V, R, T> recoverWith(
+                Class<E>                                type,
+                Function<? super V, ? extends R, T>     fallback) {
+            return new Recoverable.Function<V, R, T>(this, Recoverable.Handlers.empty()).recoverWith(type, fallback);
+        }
+        
         /**
          * Convert to a regular function and throw FailableException if there is an exception. 
          * 
@@ -377,6 +522,7 @@ public class Failable {
         public default java.util.function.Function<V, R> gracefully() {
             return v -> {
                 try {
+                    Deadline.check();
                     return apply(v);
                 } catch (FailableException t) {
                     throw t;
@@ -394,6 +540,7 @@ public class Failable {
         public default java.util.function.Function<V, R> carelessly() {
             return v -> {
                 try {
+                    Deadline.check();
                     return apply(v);
                 } catch (Throwable t) {
                     return null;
@@ -518,6 +665,37 @@ public class Failable {
             };
         }
         
+        /**
+         * Recover from the exception of the given type (or its subtypes) using the given handler.
+         * 
+         * @param type     the type of the exception.
+         * @param handler  the handler to calculate the returned value from the exception.
+         * @return  the recoverable bi-function.
+         * 
+         * @param <E>  the type of the exception to recover from.
+         **/
+        public default <E extends Throwable> BiFunction<V1, V2, R, T> recover(
+                Class<E>                                type,
+                Function<? super E, ? extends R, T>     handler) {
+            return new Recoverable.BiFunction<V1, V2, R, T>(this, Recoverable.Handlers.empty()).recover(type, handler);
+        }
+        
+        /**
+         * Recover from the exception of the given type (or its subtypes) by applying the given fallback bi-function
+         *   to the same input values.
+         * 
+         * @param type      the type of the exception.
+         * @param fallback  the fallback bi-function.
+         * @return  the recoverable bi-function.
+         * 
+         * @param <E>  the type of the exception to recover from.
+         **/
+        public default <E extends Throwable> BiFunction<V1, V2, R, T> recoverWith(
+                Class<E>                                                type,
+                BiFunction<? super V1, ? super V2, ? extends R, T>      fallback) {
+            return new Recoverable.BiFunction<V1, V2, R, T>(this, Recoverable.Handlers.empty()).recoverWith(type, fallback);
+        }
+        
         /**
          * Convert to a regular function and throw FailableException if there is an exception. 
          * 
@@ -526,6 +704,7 @@ public class Failable {
         public default java.util.function.BiFunction<V1, V2, R> gracefully() {
             return (v1,v2) -> {
                 try {
+                    Deadline.check();
                     return apply(v1, v2);
                 } catch (FailableException t) {
                     throw t;
@@ -543,12 +722,60 @@ public class Failable {
         public default java.util.function.BiFunction<V1, V2, R> carelessly() {
             return (v1,v2) -> {
                 try {
+                    Deadline.check();
                     return apply(v1, v2);
                 } catch (Throwable t) {
                     return null;
                 }
             };
         }
+        
+        /**
+         * Reduce the values in parallel with the given associative combiner.
+         * 
+         * The values are split in halves recursively on a fork-join pool of the given parallelism
+         *   (the common pool if its parallelism matches, otherwise a shared pool kept for that parallelism);
+         *   the order of the values is kept but the grouping is not, so the combiner must be associative.
+         * The first exception cancels the remaining work and is thrown from here.
+         * 
+         * @param combiner     the associative combiner.
+         * @param values       the values.
+         * @param identity     the value returned when there is no value.
+         * @param parallelism  the number of worker threads.
+         * @return  the reduced value.
+         * @throws T  the exception thrown by the combiner.
+         * 
+         * @param <V>  the value type.
+         * @param <T>  the type of the thrown exception.
+         **/
+        public static <V, T extends Throwable> V reduceAll(
+                BiFunction<V, V, V, T>      combiner,
+                Collection<? extends V>     values,
+                V                           identity,
+                int                         parallelism) throws T {
+            return ParallelReduction.reduce(combiner, values, identity, parallelism);
+        }
+        
+        /**
+         * Reduce the values in parallel with the given associative combiner using the given fork-join pool.
+         * 
+         * @param combiner  the associative combiner.
+         * @param values    the values.
+         * @param identity  the value returned when there is no value.
+         * @param pool      the fork-join pool.
+         * @return  the reduced value.
+         * @throws T  the exception thrown by the combiner.
+         * 
+         * @param <V>  the value type.
+         * @param <T>  the type of the thrown exception.
+         **/
+        public static <V, T extends Throwable> V reduceAll(
+                BiFunction<V, V, V, T>      combiner,
+                Collection<? extends V>     values,
+                V                           identity,
+                ForkJoinPool                pool) throws T {
+            return ParallelReduction.reduce(combiner, values, identity, pool);
+        }
     }
     
 }
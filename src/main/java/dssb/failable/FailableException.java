@@ -33,4 +33,33 @@ public class FailableException extends RuntimeException {
         super(cause);
     }
     
+    /**
+     * Constructor for exceptions that are not wrapping another exception.
+     * 
+     * @param message             the message.
+     * @param writableStackTrace  whether or not the stack trace should be filled in.
+     **/
+    protected FailableException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+    
+    /**
+     * Throw the given cause as is -- a checked cause is thrown as the exception type of the failable.
+     * 
+     * The return type only allows the callers to write {@code throw rethrow(cause)}; this method never returns.
+     * 
+     * @param <T>    the type of the thrown exception.
+     * @param cause  the cause.
+     * @return  never.
+     * @throws T  the cause.
+     **/
+    @SuppressWarnings("unchecked")
+    static <T extends Throwable> RuntimeException rethrow(Throwable cause) throws T {
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException)cause;
+        if (cause instanceof Error)
+            throw (Error)cause;
+        throw (T)cause;
+    }
+    
 }
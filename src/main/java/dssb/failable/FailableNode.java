@@ -0,0 +1,195 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lombok.val;
+
+/**
+ * A lazy node in a graph of dependent failable computations.
+ * 
+ * A node is computed at most once -- the first evaluation starts it (and its dependencies) and all later
+ *   evaluations share the same result.
+ * Nodes that do not depend on each other are computed in parallel
+ *   and a node whose dependency failed is not computed but fails with the same exception.
+ * 
+ * @param <V>  the type of the value.
+ * @param <T>  the type of the thrown exception.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+public final class FailableNode<V, T extends Throwable> implements Failable.Supplier<V, T> {
+    
+    private final java.util.function.BiFunction<Executor, Deadline, CompletableFuture<V>> starter;
+    
+    private final AtomicReference<CompletableFuture<V>> result = new AtomicReference<>();
+    
+    private FailableNode(java.util.function.BiFunction<Executor, Deadline, CompletableFuture<V>> starter) {
+        this.starter = starter;
+    }
+    
+    /**
+     * Create a node with no dependency.
+     * 
+     * @param supplier  the supplier of the value.
+     * @return  the node.
+     * 
+     * @param <V>  the type of the value.
+     * @param <T>  the type of the thrown exception.
+     **/
+    public static <V, T extends Throwable> FailableNode<V, T> of(Failable.Supplier<V, T> supplier) {
+        return new FailableNode<V, T>((executor, deadline) -> {
+            return CompletableFuture.supplyAsync(within(deadline, supplier).gracefully(), executor);
+        });
+    }
+    
+    /**
+     * Create a node that depends on another node.
+     * 
+     * @param dependency  the dependency.
+     * @param function    the function to calculate the value from the value of the dependency.
+     * @return  the node.
+     * 
+     * @param <A>  the type of the value of the dependency.
+     * @param <V>  the type of the value.
+     * @param <T>  the type of the thrown exception.
+     **/
+    public static <A, V, T extends Throwable> FailableNode<V, T> of(
+            FailableNode<A, ? extends T>   dependency,
+            Failable.Function<A, V, T>     function) {
+        return new FailableNode<V, T>((executor, deadline) -> {
+            return dependency.evaluate(executor)
+                    .thenApplyAsync(a -> within(deadline, () -> function.apply(a)).gracefully().get(), executor);
+        });
+    }
+    
+    /**
+     * Create a node that depends on two other nodes.
+     * 
+     * @param dependency1  the first dependency.
+     * @param dependency2  the second dependency.
+     * @param function     the function to calculate the value from the values of the dependencies.
+     * @return  the node.
+     * 
+     * @param <A>  the type of the value of the first dependency.
+     * @param <B>  the type of the value of the second dependency.
+     * @param <V>  the type of the value.
+     * @param <T>  the type of the thrown exception.
+     **/
+    public static <A, B, V, T extends Throwable> FailableNode<V, T> of(
+            FailableNode<A, ? extends T>    dependency1,
+            FailableNode<B, ? extends T>    dependency2,
+            Failable.BiFunction<A, B, V, T> function) {
+        return new FailableNode<V, T>((executor, deadline) -> {
+            val future1  = dependency1.evaluate(executor);
+            val future2  = dependency2.evaluate(executor);
+            val combined = future1.thenCombineAsync(
+                    future2,
+                    (a, b) -> within(deadline, () -> function.apply(a, b)).gracefully().get(),
+                    executor);
+            // thenCombine waits for both inputs -- fail as soon as either of them fails.
+            future1.whenComplete((value, exception) -> {
+                if (exception != null)
+                    combined.completeExceptionally(exception);
+            });
+            future2.whenComplete((value, exception) -> {
+                if (exception != null)
+                    combined.completeExceptionally(exception);
+            });
+            return combined;
+        });
+    }
+    
+    /**
+     * Start the evaluation of this node (and its dependencies) using the given executor.
+     * 
+     * If this node is already evaluated or being evaluated, the existing result is returned
+     *   and the executor is not used.
+     * The deadline of the calling thread (if any) is carried to the computations.
+     * 
+     * @param executor  the executor.
+     * @return  the future of the value.
+     **/
+    public CompletableFuture<V> evaluate(Executor executor) {
+        val existing = result.get();
+        if (existing != null)
+            return existing;
+        
+        val future = new CompletableFuture<V>();
+        if (!result.compareAndSet(null, future))
+            return result.get();
+        
+        // The future is already installed so it must be completed even if the start fails (e.g. a rejection).
+        try {
+            starter.apply(executor, Deadline.current()).whenComplete((value, exception) -> {
+                if (exception != null)
+                    future.completeExceptionally(unwrap(exception));
+                else
+                    future.complete(value);
+            });
+        } catch (RuntimeException | Error exception) {
+            future.completeExceptionally(unwrap(exception));
+            throw exception;
+        }
+        return future;
+    }
+    
+    /**
+     * Evaluate this node using the common fork-join pool and wait for the value.
+     * 
+     * @return  the value.
+     * @throws T  the thrown exception.
+     **/
+    @Override
+    public V get() throws T {
+        return get(ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Evaluate this node using the given executor and wait for the value.
+     * 
+     * @param executor  the executor.
+     * @return  the value.
+     * @throws T  the thrown exception.
+     **/
+    public V get(Executor executor) throws T {
+        try {
+            return evaluate(executor).join();
+        } catch (CompletionException e) {
+            throw FailableException.<T>rethrow(unwrap(e));
+        }
+    }
+    
+    // The deadline is set up inside the computation (not by wrapping the executor)
+    //   so that an expired deadline fails the future instead of leaving it incomplete.
+    private static <V, T extends Throwable> Failable.Supplier<V, T> within(Deadline deadline, Failable.Supplier<V, T> body) {
+        return (deadline == null) ? body : () -> deadline.call(body);
+    }
+    
+    private static Throwable unwrap(Throwable exception) {
+        if ((exception instanceof CompletionException) && (exception.getCause() != null))
+            exception = exception.getCause();
+        if ((exception instanceof FailableException) && (exception.getCause() != null))
+            exception = exception.getCause();
+        return exception;
+    }
+    
+}
@@ -0,0 +1,386 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lombok.val;
+
+/**
+ * Records of a file processed in parallel by failables.
+ * 
+ * The file is split into chunks on record boundaries and each chunk is memory-mapped and processed by one task
+ *   so records within a chunk are processed in order while the chunks are processed in parallel.
+ * Each record is given as a read-only buffer over the mapped file spanning from its position to its limit.
+ * The same buffer instance is reused for all the records of a chunk so it must not be kept after the call.
+ * 
+ * Records are either lines (terminated by '\n' with an optional '\r' before it)
+ *   or length-prefixed (a 4-byte big-endian length followed by that many bytes).
+ * 
+ * Without an error handler, the first exception stops the processing and is rethrown.
+ * With an error handler, the failed records are given to the handler and the processing goes on.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+public final class FileRecords {
+    
+    /**
+     * Handler of the exception thrown while processing a record.
+     **/
+    @FunctionalInterface
+    public static interface ErrorHandler {
+        
+        /**
+         * Handle the exception.
+         * 
+         * @param offset     the offset of the record in the file.
+         * @param record     the record.
+         * @param exception  the exception.
+         **/
+        public void handle(long offset, ByteBuffer record, Throwable exception);
+        
+    }
+    
+    static final int DEFAULT_CHUNK_SIZE = 1 << 26;
+    
+    private static final int WINDOW_SIZE = 1 << 26;
+    private static final int SCAN_SIZE   = 1 << 13;
+    
+    private final Path     path;
+    private final boolean  lengthPrefixed;
+    private final int      chunkSize;
+    private final Executor executor;
+    
+    private FileRecords(Path path, boolean lengthPrefixed, int chunkSize, Executor executor) {
+        this.path           = path;
+        this.lengthPrefixed = lengthPrefixed;
+        this.chunkSize      = chunkSize;
+        this.executor       = executor;
+    }
+    
+    /**
+     * Records that are the lines of the given file.
+     * 
+     * @param path  the path of the file.
+     * @return  the file records.
+     **/
+    public static FileRecords lines(Path path) {
+        return new FileRecords(path, false, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Records that are length-prefixed in the given file.
+     * 
+     * @param path  the path of the file.
+     * @return  the file records.
+     **/
+    public static FileRecords lengthPrefixed(Path path) {
+        return new FileRecords(path, true, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Returns the file records processed in chunks of about the given size.
+     * 
+     * @param chunkSize  the chunk size in bytes.
+     * @return  the file records.
+     **/
+    public FileRecords withChunkSize(int chunkSize) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        return new FileRecords(path, lengthPrefixed, chunkSize, executor);
+    }
+    
+    /**
+     * Returns the file records processed by the given executor.
+     * 
+     * @param executor  the executor.
+     * @return  the file records.
+     **/
+    public FileRecords withExecutor(Executor executor) {
+        return new FileRecords(path, lengthPrefixed, chunkSize, executor);
+    }
+    
+    /**
+     * Give each record to the given consumer.
+     * 
+     * @param consumer  the consumer.
+     * @throws T            the exception thrown by the consumer.
+     * @throws IOException  when the file cannot be read.
+     * 
+     * @param <T>  the type of the thrown exception.
+     **/
+    public <T extends Throwable> void forEach(Failable.Consumer<ByteBuffer, T> consumer) throws T, IOException {
+        process((chunk, offset, record) -> consumer.accept(record), null, null);
+    }
+    
+    /**
+     * Give each record to the given consumer and the failed ones to the error handler.
+     * 
+     * @param consumer      the consumer.
+     * @param errorHandler  the error handler.
+     * @throws IOException  when the file cannot be read.
+     * 
+     * @param <T>  the type of the thrown exception.
+     **/
+    public <T extends Throwable> void forEach(Failable.Consumer<ByteBuffer, T> consumer, ErrorHandler errorHandler)
+            throws IOException {
+        processGracefully((chunk, offset, record) -> consumer.accept(record), errorHandler, null);
+    }
+    
+    /**
+     * Apply the given function to each record.
+     * 
+     * @param function  the function.
+     * @return  the results in the order of the records.
+     * @throws T            the exception thrown by the function.
+     * @throws IOException  when the file cannot be read.
+     * 
+     * @param <R>  the returned data type.
+     * @param <T>  the type of the thrown exception.
+     **/
+    public <R, T extends Throwable> List<R> map(Failable.Function<ByteBuffer, R, T> function) throws T, IOException {
+        val results = new ArrayList<List<R>>();
+        process((chunk, offset, record) -> results.get(chunk).add(function.apply(record)), null, results);
+        return flatten(results);
+    }
+    
+    /**
+     * Apply the given function to each record and give the failed ones to the error handler.
+     * 
+     * @param function      the function.
+     * @param errorHandler  the error handler.
+     * @return  the results of the successful records in the order of the records.
+     * @throws IOException  when the file cannot be read.
+     * 
+     * @param <R>  the returned data type.
+     * @param <T>  the type of the thrown exception.
+     **/
+    public <R, T extends Throwable> List<R> map(Failable.Function<ByteBuffer, R, T> function, ErrorHandler errorHandler)
+            throws IOException {
+        val results = new ArrayList<List<R>>();
+        processGracefully((chunk, offset, record) -> results.get(chunk).add(function.apply(record)), errorHandler, results);
+        return flatten(results);
+    }
+    
+    //== Processing ==
+    
+    @FunctionalInterface
+    private static interface Visitor<T extends Throwable> {
+        public void visit(int chunk, long offset, ByteBuffer record) throws T;
+    }
+    
+    private <R, T extends Throwable> void processGracefully(
+            Visitor<T>        visitor,
+            ErrorHandler      errorHandler,
+            List<List<R>>     results) throws IOException {
+        try {
+            process(visitor, errorHandler, results);
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // Should not happen as all exceptions from the visitor go to the error handler.
+            throw new FailableException(e);
+        }
+    }
+    
+    private <R, T extends Throwable> void process(
+            Visitor<T>        visitor,
+            ErrorHandler      errorHandler,
+            List<List<R>>     results) throws T, IOException {
+        try (val channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            val boundaries = lengthPrefixed ? lengthPrefixedBoundaries(channel) : lineBoundaries(channel);
+            val chunkCount = boundaries.size() - 1;
+            if (results != null) {
+                for (int i = 0; i < chunkCount; i++)
+                    results.add(new ArrayList<R>());
+            }
+            
+            val failure = new AtomicReference<Throwable>();
+            val futures = new CompletableFuture<?>[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                val chunk = i;
+                val start = boundaries.get(i);
+                val end   = boundaries.get(i + 1);
+                val task  = Deadline.propagate(() -> {
+                    try {
+                        if (failure.get() == null) {
+                            Deadline.check();
+                            processChunk(channel, chunk, start, end, visitor, errorHandler, failure);
+                        }
+                    } catch (Throwable exception) {
+                        failure.compareAndSet(null, exception);
+                    }
+                });
+                futures[i] = CompletableFuture.runAsync(task, executor);
+            }
+            try {
+                CompletableFuture.allOf(futures).join();
+            } catch (CompletionException e) {
+                failure.compareAndSet(null, e.getCause());
+            }
+            
+            val exception = failure.get();
+            if (exception == null)
+                return;
+            if (exception instanceof IOException)
+                throw (IOException)exception;
+            throw FailableException.<T>rethrow(exception);
+        }
+    }
+    
+    private <T extends Throwable> void processChunk(
+            FileChannel                 channel,
+            int                         chunk,
+            long                        start,
+            long                        end,
+            Visitor<T>                  visitor,
+            ErrorHandler                errorHandler,
+            AtomicReference<Throwable>  failure) throws T, IOException {
+        if ((end - start) > Integer.MAX_VALUE)
+            throw new IOException("Record too large at offset: " + start);
+        
+        val buffer = channel.map(MapMode.READ_ONLY, start, end - start);
+        val record = buffer.asReadOnlyBuffer();
+        val limit  = buffer.limit();
+        int position = 0;
+        while ((position < limit) && (failure.get() == null)) {
+            int recordStart;
+            int recordEnd;
+            int next;
+            if (lengthPrefixed) {
+                recordStart = position + 4;
+                recordEnd   = recordStart + buffer.getInt(position);
+                next        = recordEnd;
+            } else {
+                int eol = position;
+                while ((eol < limit) && (buffer.get(eol) != '\n'))
+                    eol++;
+                recordStart = position;
+                recordEnd   = ((eol > position) && (buffer.get(eol - 1) == '\r')) ? eol - 1 : eol;
+                next        = eol + 1;
+            }
+            
+            val offset = start + position;
+            select(record, recordStart, recordEnd);
+            if (errorHandler == null) {
+                visitor.visit(chunk, offset, record);
+            } else {
+                try {
+                    visitor.visit(chunk, offset, record);
+                } catch (Throwable exception) {
+                    select(record, recordStart, recordEnd);
+                    errorHandler.handle(offset, record, exception);
+                }
+            }
+            position = next;
+        }
+    }
+    
+    private static void select(ByteBuffer record, int start, int end) {
+        record.clear();
+        record.position(start);
+        record.limit(end);
+    }
+    
+    //== Boundaries ==
+    
+    private List<Long> lineBoundaries(FileChannel channel) throws IOException {
+        val size       = channel.size();
+        val boundaries = new ArrayList<Long>();
+        val scan       = ByteBuffer.allocateDirect(SCAN_SIZE);
+        long start = 0;
+        boundaries.add(start);
+        while (start < size) {
+            long end = Math.min(start + chunkSize, size);
+            if (end < size)
+                end = nextLineStart(channel, end - 1, size, scan);
+            boundaries.add(end);
+            start = end;
+        }
+        return boundaries;
+    }
+    
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer scan)
+            throws IOException {
+        while (position < size) {
+            scan.clear();
+            val read = channel.read(scan, position);
+            if (read <= 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+    
+    private List<Long> lengthPrefixedBoundaries(FileChannel channel) throws IOException {
+        val size       = channel.size();
+        val boundaries = new ArrayList<Long>();
+        MappedByteBuffer window = null;
+        long windowStart = 0;
+        long chunkStart  = 0;
+        long position    = 0;
+        boundaries.add(position);
+        while (position < size) {
+            if ((size - position) < 4)
+                throw new IOException("Truncated record at offset: " + position);
+            if ((window == null) || ((position + 4) > (windowStart + window.limit()))) {
+                windowStart = position;
+                window      = channel.map(MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+            }
+            val length = window.getInt((int)(position - windowStart));
+            if ((length < 0) || ((position + 4 + length) > size))
+                throw new IOException("Invalid record length at offset: " + position);
+            
+            position += 4 + length;
+            if ((position - chunkStart) >= chunkSize) {
+                boundaries.add(position);
+                chunkStart = position;
+            }
+        }
+        if (chunkStart != size)
+            boundaries.add(size);
+        return boundaries;
+    }
+    
+    private static <R> List<R> flatten(List<List<R>> results) {
+        int total = 0;
+        for (val result : results)
+            total += result.size();
+        
+        val list = new ArrayList<R>(total);
+        for (val result : results)
+            list.addAll(result);
+        return list;
+    }
+    
+}
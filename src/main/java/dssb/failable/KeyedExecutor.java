@@ -0,0 +1,202 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lombok.val;
+
+/**
+ * Executor of a failable consumer that processes the values of the same key in order
+ *   and the values of different keys in parallel.
+ * 
+ * Keys are spread over a fixed number of stripes, each with its own lock-free queue
+ *   that is drained by at most one task at a time; so different keys that share a stripe are also processed in order.
+ * A failure is given to the failure handler and does not stop the processing of the following values.
+ * The deadline in effect when a value is submitted is applied when it is processed.
+ * 
+ * @param <K>  the key type.
+ * @param <V>  the value type.
+ * @param <T>  the type of the thrown exception.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+public final class KeyedExecutor<K, V, T extends Throwable> {
+    
+    /**
+     * Handler of the exception thrown while processing a value.
+     * 
+     * @param <K>  the key type.
+     * @param <V>  the value type.
+     **/
+    @FunctionalInterface
+    public static interface FailureHandler<K, V> {
+        
+        /**
+         * Handle the exception.
+         * 
+         * @param key        the key.
+         * @param value      the value.
+         * @param exception  the exception.
+         **/
+        public void handle(K key, V value, Throwable exception);
+        
+    }
+    
+    private static final int DRAIN_LIMIT = 256;
+    
+    private final Failable.Consumer<V, T>   consumer;
+    private final Executor                  executor;
+    private final FailureHandler<K, V>      failureHandler;
+    private final Stripe<K, V, T>[]         stripes;
+    
+    /**
+     * Constructor.
+     * 
+     * @param consumer        the consumer.
+     * @param executor        the executor to run the consumer with.
+     * @param stripeCount     the number of stripes (rounded up to a power of two).
+     * @param failureHandler  the failure handler.
+     **/
+    @SuppressWarnings("unchecked")
+    public KeyedExecutor(
+            Failable.Consumer<V, T>   consumer,
+            Executor                  executor,
+            int                       stripeCount,
+            FailureHandler<K, V>      failureHandler) {
+        if (stripeCount <= 0)
+            throw new IllegalArgumentException("Stripe count must be positive: " + stripeCount);
+        
+        this.consumer       = consumer;
+        this.executor       = executor;
+        this.failureHandler = failureHandler;
+        this.stripes        = (Stripe<K, V, T>[])new Stripe<?, ?, ?>[Integer.highestOneBit((stripeCount * 2) - 1)];
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe<K, V, T>(this);
+    }
+    
+    /**
+     * Submit the value to be processed after the values previously submitted with the same key.
+     * 
+     * @param key    the key.
+     * @param value  the value.
+     * @throws RejectedExecutionException  if the executor rejects the task -- the value is then not processed
+     *           (values submitted to the same stripe at the same time are given to the failure handler).
+     **/
+    public void submit(K key, V value) {
+        val hash = (key == null) ? 0 : key.hashCode();
+        stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)].add(new Entry<K, V>(key, value, Deadline.current()));
+    }
+    
+    private void process(Entry<K, V> entry) {
+        try {
+            if (entry.deadline == null)
+                consumer.accept(entry.value);
+            else
+                entry.deadline.run(()->consumer.accept(entry.value));
+        } catch (Throwable exception) {
+            fail(entry, exception);
+        }
+    }
+    
+    private void fail(Entry<K, V> entry, Throwable exception) {
+        try {
+            failureHandler.handle(entry.key, entry.value, exception);
+        } catch (Throwable ignored) {
+            // The failure handler must not stop the stripe.
+        }
+    }
+    
+    private static final class Entry<K, V> {
+        final K        key;
+        final V        value;
+        final Deadline deadline;
+        Entry(K key, V value, Deadline deadline) {
+            this.key      = key;
+            this.value    = value;
+            this.deadline = deadline;
+        }
+    }
+    
+    private static final class Stripe<K, V, T extends Throwable> implements java.lang.Runnable {
+        
+        private final KeyedExecutor<K, V, T>             owner;
+        private final ConcurrentLinkedQueue<Entry<K, V>> queue     = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean                      scheduled = new AtomicBoolean(false);
+        
+        Stripe(KeyedExecutor<K, V, T> owner) {
+            this.owner = owner;
+        }
+        
+        void add(Entry<K, V> entry) {
+            queue.offer(entry);
+            if (!scheduled.compareAndSet(false, true))
+                return;
+            
+            try {
+                owner.executor.execute(this);
+            } catch (RejectedExecutionException exception) {
+                queue.remove(entry);
+                rejected(exception);
+                throw exception;
+            }
+        }
+        
+        private void schedule() {
+            try {
+                owner.executor.execute(this);
+            } catch (RejectedExecutionException exception) {
+                rejected(exception);
+            }
+        }
+        
+        // The values in the queue were accepted when the stripe was already scheduled
+        //   so they are given to the failure handler rather than left stuck.
+        private void rejected(RejectedExecutionException exception) {
+            do {
+                for (Entry<K, V> entry; (entry = queue.poll()) != null;)
+                    owner.fail(entry, exception);
+                scheduled.set(false);
+            } while (!queue.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+        
+        @Override
+        public void run() {
+            int processed = 0;
+            while (true) {
+                val entry = queue.poll();
+                if (entry == null) {
+                    scheduled.set(false);
+                    // Re-check as a value may be added after the poll but before the flag is cleared.
+                    if (queue.isEmpty() || !scheduled.compareAndSet(false, true))
+                        return;
+                    continue;
+                }
+                
+                owner.process(entry);
+                if (++processed >= DRAIN_LIMIT) {
+                    // Give other stripes a turn -- this stripe stays scheduled.
+                    schedule();
+                    return;
+                }
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,367 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.val;
+
+/**
+ * A bounded pool of objects created by a failable supplier.
+ * 
+ * Borrowing does not take a lock: each object has an atomic state that a borrower claims with a CAS.
+ * A thread first tries the objects it returned most recently, then all the objects of the pool,
+ *   then creates a new one if the pool is not full, and otherwise waits for an object to be handed over by a returning thread.
+ * An object that fails the validation (or whose validation throws) is destroyed and another one is tried.
+ * Destroying an object closes it if it is {@link AutoCloseable}.
+ * 
+ * The pool owns no threads; call {@link #evictIdle()} periodically to destroy the objects that are idle for too long.
+ * 
+ * @param <V>  the type of the pooled objects.
+ * @param <T>  the type of the thrown exception.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+public final class ObjectPool<V, T extends Throwable> implements AutoCloseable {
+    
+    private static final int NOT_IN_USE = 0;
+    private static final int IN_USE     = 1;
+    private static final int REMOVED    = -1;
+    
+    private static final int  LOCAL_LIMIT = 16;
+    // Waiters also look again for idle objects and free capacity at least this often.
+    private static final long WAIT_SLICE  = TimeUnit.MILLISECONDS.toNanos(10);
+    
+    /**
+     * A borrowed object that is returned to the pool when closed.
+     * 
+     * @param <V>  the type of the pooled objects.
+     **/
+    public static final class Lease<V> implements AutoCloseable {
+        
+        private final ObjectPool<V, ?> pool;
+        private final Entry<V>         entry;
+        private final AtomicBoolean    released = new AtomicBoolean(false);
+        
+        Lease(ObjectPool<V, ?> pool, Entry<V> entry) {
+            this.pool  = pool;
+            this.entry = entry;
+        }
+        
+        /**
+         * Returns the borrowed object.
+         * 
+         * @return  the object.
+         **/
+        public V get() {
+            return entry.value;
+        }
+        
+        /**
+         * Destroy the object instead of returning it to the pool -- for an object found to be broken.
+         **/
+        public void invalidate() {
+            if (released.compareAndSet(false, true))
+                pool.remove(entry);
+        }
+        
+        /**
+         * Return the object to the pool.
+         **/
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true))
+                pool.release(entry);
+        }
+    }
+    
+    private final Failable.Supplier<V, T>          factory;
+    private final Failable.Function<V, Boolean, T> validator;
+    private final int                              maxSize;
+    private final long                             idleTimeout;
+    
+    private final CopyOnWriteArrayList<Entry<V>> entries = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<List<Entry<V>>>    locals  = ThreadLocal.withInitial(() -> new ArrayList<Entry<V>>(LOCAL_LIMIT));
+    private final SynchronousQueue<Entry<V>>     handoff = new SynchronousQueue<>(true);
+    private final AtomicInteger                  total   = new AtomicInteger(0);
+    private final AtomicInteger                  waiters = new AtomicInteger(0);
+    
+    // Handed to the waiting borrowers to wake them up when the pool is closed.
+    private final Entry<V> closedMarker = new Entry<V>(null);
+    
+    private volatile boolean closed = false;
+    
+    /**
+     * Constructor.
+     * 
+     * @param factory      the factory of the objects.
+     * @param validator    the validator to check an object with before it is borrowed again (or {@code null}).
+     * @param maxSize      the maximum number of objects.
+     * @param idleTimeout  the time an object can stay idle before {@link #evictIdle()} destroys it.
+     * @param unit         the time unit of the idle timeout.
+     **/
+    public ObjectPool(
+            Failable.Supplier<V, T>           factory,
+            Failable.Function<V, Boolean, T>  validator,
+            int                               maxSize,
+            long                              idleTimeout,
+            TimeUnit                          unit) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Max size must be positive: " + maxSize);
+        
+        this.factory     = factory;
+        this.validator   = validator;
+        this.maxSize     = maxSize;
+        this.idleTimeout = unit.toNanos(idleTimeout);
+    }
+    
+    /**
+     * Borrow an object, waiting for one as long as needed.
+     * 
+     * If there is a current deadline, the wait is limited by it.
+     * 
+     * @return  the lease of the object.
+     * @throws T  the exception thrown by the factory.
+     * @throws IllegalStateException  if the pool is closed.
+     **/
+    public Lease<V> borrow() throws T {
+        Deadline.check();
+        val deadline = Deadline.current();
+        val timeout  = (deadline == null) ? Long.MAX_VALUE : Math.max(0, deadline.remaining(TimeUnit.NANOSECONDS));
+        val lease    = borrow(timeout, TimeUnit.NANOSECONDS);
+        if (lease == null)
+            throw DeadlineExceededException.INSTANCE;
+        return lease;
+    }
+    
+    /**
+     * Borrow an object, waiting for one up to the given timeout.
+     * 
+     * @param timeout  the timeout.
+     * @param unit     the time unit of the timeout.
+     * @return  the lease of the object or {@code null} if timed out.
+     * @throws T  the exception thrown by the factory.
+     * @throws IllegalStateException  if the pool is closed.
+     **/
+    public Lease<V> borrow(long timeout, TimeUnit unit) throws T {
+        val start        = System.nanoTime();
+        val timeoutNanos = unit.toNanos(timeout);
+        while (true) {
+            val entry = acquire(timeoutNanos - (System.nanoTime() - start));
+            if (entry == null)
+                return null;
+            if (entry.isNew || isValid(entry.value))
+                return new Lease<V>(this, entry);
+            
+            remove(entry);
+        }
+    }
+    
+    /**
+     * Destroy the objects that are idle longer than the idle timeout.
+     * 
+     * @return  the number of the destroyed objects.
+     **/
+    public int evictIdle() {
+        int count = 0;
+        val now   = System.nanoTime();
+        for (val entry : entries) {
+            if ((now - entry.lastReturned) > idleTimeout
+             && entry.state.compareAndSet(NOT_IN_USE, IN_USE)) {
+                remove(entry);
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Returns the number of the objects in the pool (borrowed or not).
+     * 
+     * @return  the number of objects.
+     **/
+    public int size() {
+        return total.get();
+    }
+    
+    /**
+     * Returns the number of the objects that are not borrowed.
+     * 
+     * @return  the number of idle objects.
+     **/
+    public int idleCount() {
+        int count = 0;
+        for (val entry : entries) {
+            if (entry.state.get() == NOT_IN_USE)
+                count++;
+        }
+        return count;
+    }
+    
+    /**
+     * Close the pool -- the idle objects are destroyed now and the borrowed ones when they are returned.
+     **/
+    @Override
+    public void close() {
+        closed = true;
+        for (val entry : entries) {
+            if (entry.state.compareAndSet(NOT_IN_USE, IN_USE))
+                remove(entry);
+        }
+        // Wake the waiting borrowers -- those that are not blocked yet see the flag before they block.
+        while ((waiters.get() > 0) && handoff.offer(closedMarker)) {
+        }
+    }
+    
+    //== Internal ==
+    
+    private Entry<V> acquire(long timeoutNanos) throws T {
+        ensureOpen();
+        
+        val local = locals.get();
+        for (int i = local.size() - 1; i >= 0; i--) {
+            val entry = local.remove(i);
+            if (entry.state.compareAndSet(NOT_IN_USE, IN_USE))
+                return entry;
+        }
+        
+        val start = System.nanoTime();
+        while (true) {
+            for (val entry : entries) {
+                if (entry.state.compareAndSet(NOT_IN_USE, IN_USE))
+                    return entry;
+            }
+            val created = create();
+            if (created != null)
+                return created;
+            
+            val remaining = timeoutNanos - (System.nanoTime() - start);
+            if (remaining <= 0)
+                return null;
+            
+            val entry = awaitHandoff(Math.min(remaining, WAIT_SLICE));
+            if ((entry != null) && entry.state.compareAndSet(NOT_IN_USE, IN_USE))
+                return entry;
+            ensureOpen();
+        }
+    }
+    
+    // Only the threads blocked here count as waiters so that a returning thread never waits for a factory call.
+    private Entry<V> awaitHandoff(long timeoutNanos) {
+        waiters.incrementAndGet();
+        try {
+            ensureOpen();
+            return handoff.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FailableException(e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+    
+    private Entry<V> create() throws T {
+        ensureOpen();
+        while (true) {
+            val count = total.get();
+            if (count >= maxSize)
+                return null;
+            if (total.compareAndSet(count, count + 1))
+                break;
+        }
+        
+        Entry<V> entry = null;
+        try {
+            entry = new Entry<V>(factory.get());
+            entries.add(entry);
+        } finally {
+            if (entry == null)
+                total.decrementAndGet();
+        }
+        if (closed) {
+            remove(entry);
+            ensureOpen();
+        }
+        return entry;
+    }
+    
+    private void ensureOpen() {
+        if (closed)
+            throw new IllegalStateException("The pool is closed.");
+    }
+    
+    private boolean isValid(V value) {
+        if (validator == null)
+            return true;
+        try {
+            return Boolean.TRUE.equals(validator.apply(value));
+        } catch (Throwable exception) {
+            return false;
+        }
+    }
+    
+    private void release(Entry<V> entry) {
+        entry.isNew        = false;
+        entry.lastReturned = System.nanoTime();
+        entry.state.set(NOT_IN_USE);
+        if (closed) {
+            if (entry.state.compareAndSet(NOT_IN_USE, IN_USE))
+                remove(entry);
+            return;
+        }
+        
+        // A single attempt -- the hand-off only succeeds if a borrower is blocked waiting for it.
+        if ((waiters.get() > 0) && handoff.offer(entry))
+            return;
+        
+        val local = locals.get();
+        if (local.size() < LOCAL_LIMIT)
+            local.add(entry);
+    }
+    
+    private void remove(Entry<V> entry) {
+        entry.state.set(REMOVED);
+        if (!entries.remove(entry))
+            return;
+        
+        total.decrementAndGet();
+        if (entry.value instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable)entry.value).close();
+            } catch (Throwable ignored) {
+                // Nothing more can be done with a broken object.
+            }
+        }
+    }
+    
+    private static final class Entry<V> {
+        final V             value;
+        final AtomicInteger state = new AtomicInteger(IN_USE);
+        volatile long       lastReturned;
+        volatile boolean    isNew = true;
+        Entry(V value) {
+            this.value        = value;
+            this.lastReturned = System.nanoTime();
+        }
+    }
+    
+}
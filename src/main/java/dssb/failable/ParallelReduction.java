@@ -0,0 +1,155 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lombok.val;
+
+/**
+ * Divide-and-conquer reduction of values with a failable associative combiner.
+ * 
+ * The values are split in halves until the pieces are small enough, each piece is folded sequentially
+ *   and the results of the halves are combined -- always keeping the order of the values.
+ * The first failure stops all the pieces that have not finished.
+ * 
+ * @param <V>  the value type.
+ * @param <T>  the type of the thrown exception.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+final class ParallelReduction<V, T extends Throwable> {
+    
+    // Pieces per worker -- more than one so that the work is balanced when the combiner cost varies.
+    private static final int PIECES_PER_WORKER = 4;
+    
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+    
+    private final Failable.BiFunction<V, V, V, T> combiner;
+    private final Object[]                        values;
+    private final int                             pieceSize;
+    private final Deadline                        deadline;
+    private final AtomicReference<Throwable>      failure = new AtomicReference<>();
+    
+    private ParallelReduction(Failable.BiFunction<V, V, V, T> combiner, Object[] values, int parallelism) {
+        this.combiner  = combiner;
+        this.values    = values;
+        this.pieceSize = Math.max(1, values.length / (parallelism * PIECES_PER_WORKER));
+        this.deadline  = Deadline.current();
+    }
+    
+    static <V, T extends Throwable> V reduce(
+            Failable.BiFunction<V, V, V, T>  combiner,
+            Collection<? extends V>          values,
+            V                                identity,
+            int                              parallelism) throws T {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        
+        if (parallelism == 1) {
+            Deadline.check();
+            val array = values.toArray();
+            return (array.length == 0) ? identity : new ParallelReduction<V, T>(combiner, array, 1).fold(0, array.length);
+        }
+        return reduce(combiner, values, identity, poolFor(parallelism));
+    }
+    
+    static <V, T extends Throwable> V reduce(
+            Failable.BiFunction<V, V, V, T>  combiner,
+            Collection<? extends V>          values,
+            V                                identity,
+            ForkJoinPool                     pool) throws T {
+        Deadline.check();
+        val array = values.toArray();
+        if (array.length == 0)
+            return identity;
+        
+        val reduction = new ParallelReduction<V, T>(combiner, array, pool.getParallelism());
+        if (array.length == 1)
+            return reduction.fold(0, 1);
+        
+        val result = pool.invoke(reduction.new Piece(0, array.length));
+        val cause  = reduction.failure.get();
+        if (cause == null)
+            return result;
+        throw FailableException.<T>rethrow(cause);
+    }
+    
+    // The pools are kept for reuse (their threads are daemons and time out when idle).
+    private static ForkJoinPool poolFor(int parallelism) {
+        val common = ForkJoinPool.commonPool();
+        if (common.getParallelism() == parallelism)
+            return common;
+        return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private V fold(int from, int to) throws T {
+        V result = (V)values[from];
+        for (int i = from + 1; i < to; i++) {
+            if (failure.get() != null)
+                return null;
+            result = combiner.apply(result, (V)values[i]);
+        }
+        return result;
+    }
+    
+    private final class Piece extends RecursiveTask<V> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final int from;
+        private final int to;
+        
+        Piece(int from, int to) {
+            this.from = from;
+            this.to   = to;
+        }
+        
+        @Override
+        protected V compute() {
+            if (failure.get() != null)
+                return null;
+            
+            try {
+                if ((to - from) <= pieceSize) {
+                    return (deadline == null) ? fold(from, to) : deadline.call(() -> fold(from, to));
+                }
+                
+                val middle = (from + to) >>> 1;
+                val left   = new Piece(from, middle);
+                val right  = new Piece(middle, to);
+                left.fork();
+                val rightResult = right.compute();
+                val leftResult  = left.join();
+                if (failure.get() != null)
+                    return null;
+                
+                return (deadline == null)
+                        ? combiner.apply(leftResult, rightResult)
+                        : deadline.call(() -> combiner.apply(leftResult, rightResult));
+            } catch (Throwable exception) {
+                failure.compareAndSet(null, exception);
+                return null;
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,439 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+import lombok.val;
+
+/**
+ * A failable function whose results are memoized in a memory-mapped, append-only file.
+ * 
+ * Results survive restarts as the file is scanned when it is opened again.
+ * The index from keys to records is kept off heap and cached values are decoded straight from the mapped file.
+ * Only non-null results are cached; exceptions are never cached.
+ * The file can only be used by one cache at a time -- it is locked while the cache is open.
+ * 
+ * @param <V>  the input data type.
+ * @param <R>  the returned data type.
+ * @param <T>  the type of the thrown exception.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+public final class PersistentCache<V, R, T extends Throwable> implements Failable.Function<V, R, T>, Closeable {
+    
+    /**
+     * Encoder/decoder of the keys and values stored in the file.
+     * 
+     * @param <D>  the data type.
+     **/
+    public static interface Codec<D> {
+        
+        /**
+         * Encode the given data.
+         * 
+         * @param data  the data.
+         * @return  the encoded bytes.
+         **/
+        public byte[] encode(D data);
+        
+        /**
+         * Decode the data from the given buffer.
+         * 
+         * The buffer is a read-only view of the file and is only valid until the cache is closed,
+         *   so the data must copy anything it keeps beyond that.
+         * 
+         * @param buffer  the buffer holding exactly the encoded bytes.
+         * @return  the data.
+         **/
+        public D decode(ByteBuffer buffer);
+        
+        /** Codec for UTF-8 strings. */
+        public static final Codec<String> STRING = new Codec<String>() {
+            @Override
+            public byte[] encode(String data) {
+                return data.getBytes(StandardCharsets.UTF_8);
+            }
+            @Override
+            public String decode(ByteBuffer buffer) {
+                return StandardCharsets.UTF_8.decode(buffer).toString();
+            }
+        };
+        
+        /** Codec for byte arrays. */
+        public static final Codec<byte[]> BYTES = new Codec<byte[]>() {
+            @Override
+            public byte[] encode(byte[] data) {
+                return data;
+            }
+            @Override
+            public byte[] decode(ByteBuffer buffer) {
+                val bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                return bytes;
+            }
+        };
+        
+        /** Codec for longs. */
+        public static final Codec<Long> LONG = new Codec<Long>() {
+            @Override
+            public byte[] encode(Long data) {
+                return ByteBuffer.allocate(8).putLong(data).array();
+            }
+            @Override
+            public Long decode(ByteBuffer buffer) {
+                return buffer.getLong(buffer.position());
+            }
+        };
+        
+    }
+    
+    static final int DEFAULT_REGION_SIZE = 1 << 26;
+    
+    private static final int  MAGIC         = 0x46434348;
+    private static final int  VERSION       = 1;
+    private static final int  HEADER_SIZE   = 16;
+    private static final int  END_OFFSET    = 8;
+    private static final int  RECORD_HEADER = 8;
+    private static final int  SKIP_MARKER   = -1;
+    private static final int  SLOT_SIZE     = 16;
+    private static final int  INITIAL_SLOTS = 1024;
+    
+    private final Failable.Function<V, R, T> function;
+    private final Codec<V>                   keyCodec;
+    private final Codec<R>                   valueCodec;
+    private final FileChannel                channel;
+    private final int                        regionSize;
+    
+    private final StampedLock lock = new StampedLock();
+    
+    private volatile MappedByteBuffer[] regions;
+    private volatile ByteBuffer         index;
+    private volatile boolean            closed = false;
+    
+    private long end;
+    private int  count;
+    
+    /**
+     * Constructor.
+     * 
+     * @param function    the function to be cached.
+     * @param path        the path of the cache file.
+     * @param keyCodec    the codec of the keys.
+     * @param valueCodec  the codec of the values.
+     * @throws IOException  when the file cannot be opened, is not a cache file or is used by another cache.
+     **/
+    public PersistentCache(Failable.Function<V, R, T> function, Path path, Codec<V> keyCodec, Codec<R> valueCodec)
+            throws IOException {
+        this(function, path, keyCodec, valueCodec, DEFAULT_REGION_SIZE);
+    }
+    
+    PersistentCache(Failable.Function<V, R, T> function, Path path, Codec<V> keyCodec, Codec<R> valueCodec, int regionSize)
+            throws IOException {
+        this.function   = function;
+        this.keyCodec   = keyCodec;
+        this.valueCodec = valueCodec;
+        this.regionSize = regionSize;
+        this.channel    = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            lock(path);
+            val isNew = (channel.size() == 0);
+            if (!isNew)
+                checkHeader(path);
+            
+            this.regions = new MappedByteBuffer[] { channel.map(MapMode.READ_WRITE, 0, regionSize) };
+            this.index   = ByteBuffer.allocateDirect(INITIAL_SLOTS * SLOT_SIZE);
+            val header   = regions[0];
+            if (isNew) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(END_OFFSET, HEADER_SIZE);
+            }
+            this.end = header.getLong(END_OFFSET);
+            load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    @Override
+    public R apply(V input) throws T {
+        if (closed)
+            throw new IllegalStateException("The cache is closed.");
+        
+        val key    = keyCodec.encode(input);
+        val hash   = hash(key);
+        val offset = find(key, hash);
+        if (offset != 0)
+            return valueCodec.decode(valueOf(offset));
+        
+        val value = function.apply(input);
+        if (value != null)
+            store(key, hash, valueCodec.encode(value));
+        return value;
+    }
+    
+    /**
+     * Returns the number of cached results.
+     * 
+     * @return  the number of cached results.
+     **/
+    public int size() {
+        val stamp = lock.readLock();
+        try {
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Flush the cached results to the disk and close the file.
+     * 
+     * @throws IOException  when the file cannot be closed.
+     **/
+    @Override
+    public void close() throws IOException {
+        val stamp = lock.writeLock();
+        try {
+            if (closed)
+                return;
+            closed = true;
+            for (val region : regions)
+                region.force();
+            channel.close();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    //== Records ==
+    
+    // The lock is released when the channel is closed.
+    private void lock(Path path) throws IOException {
+        FileLock fileLock;
+        try {
+            fileLock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null;
+        }
+        if (fileLock == null)
+            throw new IOException("The cache file is used by another cache: " + path);
+    }
+    
+    private void checkHeader(Path path) throws IOException {
+        val header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && (channel.read(header, header.position()) > 0));
+        if ((header.position() != HEADER_SIZE) || (header.getInt(0) != MAGIC) || (header.getInt(4) != VERSION))
+            throw new IOException("Not a persistent cache file: " + path);
+    }
+    
+    // The records are only forced to the disk on close so the tail may be torn after a crash:
+    //   the scan stops at the first record that does not fit and the file is truncated there.
+    private void load() throws IOException {
+        if ((end < HEADER_SIZE) || (end > channel.size()))
+            end = Math.max(HEADER_SIZE, Math.min(end, channel.size()));
+        
+        long position = HEADER_SIZE;
+        while (position < end) {
+            val region    = region(position);
+            val local     = (int)(position % regionSize);
+            val remaining = regionSize - local;
+            if ((remaining < RECORD_HEADER) || (region.getInt(local) == SKIP_MARKER)) {
+                position += remaining;
+                continue;
+            }
+            val keyLength   = region.getInt(local);
+            val valueLength = region.getInt(local + 4);
+            val length      = (long)RECORD_HEADER + keyLength + valueLength;
+            if ((keyLength < 0) || (valueLength < 0) || (local + length > regionSize) || (position + length > end))
+                break;
+            
+            insert(hash(region, local + RECORD_HEADER, keyLength), position);
+            position += length;
+        }
+        if (position != end) {
+            end = Math.min(position, end);
+            regions[0].putLong(END_OFFSET, end);
+        }
+    }
+    
+    private void store(byte[] key, long hash, byte[] value) {
+        val length = RECORD_HEADER + key.length + value.length;
+        if (length > (regionSize - HEADER_SIZE))
+            return;
+        
+        val stamp = lock.writeLock();
+        try {
+            if (closed || (findIn(index, regions, key, hash) != 0))
+                return;
+            
+            long position  = end;
+            val  remaining = regionSize - (int)(position % regionSize);
+            if (remaining < length) {
+                if (remaining >= 4)
+                    region(position).putInt((int)(position % regionSize), SKIP_MARKER);
+                position += remaining;
+            }
+            
+            val region = region(position);
+            val local  = (int)(position % regionSize);
+            region.putInt(local,     key.length);
+            region.putInt(local + 4, value.length);
+            val buffer = region.duplicate();
+            buffer.position(local + RECORD_HEADER);
+            buffer.put(key);
+            buffer.put(value);
+            
+            insert(hash, position);
+            end = position + length;
+            regions[0].putLong(END_OFFSET, end);
+        } catch (IOException e) {
+            // The result just does not get cached.
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    private MappedByteBuffer region(long position) throws IOException {
+        val regionIndex = (int)(position / regionSize);
+        if (regionIndex < regions.length)
+            return regions[regionIndex];
+        
+        val newRegions = Arrays.copyOf(regions, regionIndex + 1);
+        for (int i = regions.length; i < newRegions.length; i++)
+            newRegions[i] = channel.map(MapMode.READ_WRITE, (long)i * regionSize, regionSize);
+        regions = newRegions;
+        return newRegions[regionIndex];
+    }
+    
+    private ByteBuffer valueOf(long offset) {
+        val region      = regions[(int)(offset / regionSize)];
+        val local       = (int)(offset % regionSize);
+        val keyLength   = region.getInt(local);
+        val valueLength = region.getInt(local + 4);
+        val buffer      = region.asReadOnlyBuffer();
+        buffer.position(local + RECORD_HEADER + keyLength);
+        buffer.limit(local + RECORD_HEADER + keyLength + valueLength);
+        return buffer.slice();
+    }
+    
+    //== Index ==
+    
+    private long find(byte[] key, long hash) {
+        val stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                val offset = findIn(index, regions, key, hash);
+                if (lock.validate(stamp))
+                    return offset;
+            } catch (RuntimeException e) {
+                // The index was changing under us -- try again with the lock.
+            }
+        }
+        
+        val readStamp = lock.readLock();
+        try {
+            return findIn(index, regions, key, hash);
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+    
+    private long findIn(ByteBuffer index, MappedByteBuffer[] regions, byte[] key, long hash) {
+        val mask = (index.capacity() / SLOT_SIZE) - 1;
+        for (int slot = (int)hash & mask; ; slot = (slot + 1) & mask) {
+            val offset = index.getLong(slot * SLOT_SIZE + 8);
+            if (offset == 0)
+                return 0;
+            if ((index.getLong(slot * SLOT_SIZE) == hash) && keyEquals(regions, offset, key))
+                return offset;
+        }
+    }
+    
+    private boolean keyEquals(MappedByteBuffer[] regions, long offset, byte[] key) {
+        val region = regions[(int)(offset / regionSize)];
+        val local  = (int)(offset % regionSize);
+        if (region.getInt(local) != key.length)
+            return false;
+        for (int i = 0; i < key.length; i++) {
+            if (region.get(local + RECORD_HEADER + i) != key[i])
+                return false;
+        }
+        return true;
+    }
+    
+    private void insert(long hash, long offset) {
+        if ((count + 1) * 2 > (index.capacity() / SLOT_SIZE))
+            index = rehash(index);
+        put(index, hash, offset);
+        count++;
+    }
+    
+    private static ByteBuffer rehash(ByteBuffer index) {
+        val newIndex = ByteBuffer.allocateDirect(index.capacity() * 2);
+        for (int slot = 0; slot < index.capacity() / SLOT_SIZE; slot++) {
+            val offset = index.getLong(slot * SLOT_SIZE + 8);
+            if (offset != 0)
+                put(newIndex, index.getLong(slot * SLOT_SIZE), offset);
+        }
+        return newIndex;
+    }
+    
+    private static void put(ByteBuffer index, long hash, long offset) {
+        val mask = (index.capacity() / SLOT_SIZE) - 1;
+        int slot = (int)hash & mask;
+        while (index.getLong(slot * SLOT_SIZE + 8) != 0)
+            slot = (slot + 1) & mask;
+        index.putLong(slot * SLOT_SIZE,     hash);
+        index.putLong(slot * SLOT_SIZE + 8, offset);
+    }
+    
+    private static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (val b : key)
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        return mix(hash);
+    }
+    
+    private static long hash(ByteBuffer buffer, int start, int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < start + length; i++)
+            hash = (hash ^ (buffer.get(i) & 0xff)) * 0x100000001b3L;
+        return mix(hash);
+    }
+    
+    private static long mix(long hash) {
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        return hash;
+    }
+    
+}
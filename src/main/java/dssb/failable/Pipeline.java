@@ -0,0 +1,422 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.val;
+
+/**
+ * A pipeline of failable function stages connected by preallocated bounded ring buffers.
+ * 
+ * Each stage has its own worker thread that takes the items from the ring buffer in front of it,
+ *   applies the function and puts the result to the ring buffer of the next stage.
+ * The ring buffers between stages have a single producer and a single consumer;
+ *   only the one in front of the first stage can be published to from many threads.
+ * A stage that returns {@code null} drops the item.
+ * An item that fails at a stage is given to the dead-letter consumer and does not go any further.
+ * 
+ * @param <I>  the type of the items published to the pipeline.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+public final class Pipeline<I> implements AutoCloseable {
+    
+    /**
+     * How a worker waits for an item (or for a space in a full ring buffer).
+     **/
+    public static enum WaitStrategy {
+        
+        /** Keep spinning -- lowest latency but burns a CPU per waiting thread. */
+        BUSY_SPIN,
+        /** Spin for a while then yield the CPU. */
+        YIELDING,
+        /** Spin for a while, yield for a while then park for short periods. */
+        PARKING;
+        
+        private static final int SPIN_TRIES  = 100;
+        private static final int YIELD_TRIES = 200;
+        private static final int PARK_NANOS  = 50_000;
+        
+        void idle(int attempt) {
+            if ((this == BUSY_SPIN) || (attempt < SPIN_TRIES))
+                return;
+            if ((this == YIELDING) || (attempt < YIELD_TRIES))
+                Thread.yield();
+            else
+                LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+    
+    /**
+     * An item that failed at a stage.
+     **/
+    public static final class Failure {
+        
+        private final int       stage;
+        private final Object    item;
+        private final Throwable cause;
+        
+        Failure(int stage, Object item, Throwable cause) {
+            this.stage = stage;
+            this.item  = item;
+            this.cause = cause;
+        }
+        
+        /**
+         * Returns the index of the stage the item failed at.
+         * 
+         * @return  the stage index.
+         **/
+        public int getStage() {
+            return stage;
+        }
+        
+        /**
+         * Returns the item given to the failed stage.
+         * 
+         * @return  the item.
+         **/
+        public Object getItem() {
+            return item;
+        }
+        
+        /**
+         * Returns the exception thrown by the stage.
+         * 
+         * @return  the exception.
+         **/
+        public Throwable getCause() {
+            return cause;
+        }
+        
+        @Override
+        public String toString() {
+            return "Failure[stage=" + stage + ", item=" + item + ", cause=" + cause + "]";
+        }
+    }
+    
+    /**
+     * The stages of a pipeline to be started.
+     * 
+     * @param <I>  the type of the items published to the pipeline.
+     * @param <O>  the type of the items coming out of the last stage.
+     **/
+    public static final class Stages<I, O> {
+        
+        private final List<Failable.Function<Object, Object, ?>> functions;
+        
+        private Stages(List<Failable.Function<Object, Object, ?>> functions) {
+            this.functions = functions;
+        }
+        
+        /**
+         * Add a stage.
+         * 
+         * @param function  the function of the stage.
+         * @return  the stages.
+         * 
+         * @param <R>  the type of the items coming out of the added stage.
+         **/
+        @SuppressWarnings("unchecked")
+        public <R> Stages<I, R> then(Failable.Function<? super O, R, ?> function) {
+            val newFunctions = new ArrayList<Failable.Function<Object, Object, ?>>(functions);
+            newFunctions.add((Failable.Function<Object, Object, ?>)function);
+            return new Stages<I, R>(Collections.unmodifiableList(newFunctions));
+        }
+        
+        /**
+         * Add a final stage that consumes the items.
+         * 
+         * @param consumer  the consumer of the stage.
+         * @return  the stages.
+         **/
+        @SuppressWarnings("unchecked")
+        public Stages<I, Void> to(Failable.Consumer<? super O, ?> consumer) {
+            val casted = (Failable.Consumer<Object, Throwable>)consumer;
+            return then(item -> {
+                casted.accept(item);
+                return null;
+            });
+        }
+        
+        /**
+         * Start the pipeline.
+         * 
+         * @param bufferSize    the size of each ring buffer (rounded up to a power of two).
+         * @param waitStrategy  the wait strategy.
+         * @param deadLetter    the consumer of the failed items.
+         * @return  the running pipeline.
+         **/
+        public Pipeline<I> start(int bufferSize, WaitStrategy waitStrategy, Failable.Consumer<? super Failure, ?> deadLetter) {
+            return new Pipeline<I>(functions, bufferSize, waitStrategy, deadLetter);
+        }
+    }
+    
+    private final Ring           ingress;
+    private final List<Thread>   workers;
+    private final WaitStrategy   waitStrategy;
+    
+    private Pipeline(
+            List<Failable.Function<Object, Object, ?>>  functions,
+            int                                         bufferSize,
+            WaitStrategy                                waitStrategy,
+            Failable.Consumer<? super Failure, ?>       deadLetter) {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        
+        val capacity = Integer.highestOneBit((bufferSize * 2) - 1);
+        val rings    = new ArrayList<Ring>();
+        for (int i = 0; i < functions.size(); i++)
+            rings.add(new Ring(capacity, (i == 0)));
+        
+        this.ingress      = rings.get(0);
+        this.waitStrategy = waitStrategy;
+        this.workers      = new ArrayList<Thread>();
+        for (int i = 0; i < functions.size(); i++) {
+            val worker = new Worker(i, functions.get(i), rings.get(i), (i + 1 < rings.size()) ? rings.get(i + 1) : null, waitStrategy, deadLetter);
+            val thread = new Thread(worker, "pipeline-stage-" + i);
+            thread.setDaemon(true);
+            workers.add(thread);
+        }
+        for (val thread : workers)
+            thread.start();
+    }
+    
+    /**
+     * Start building a pipeline with the given first stage.
+     * 
+     * @param function  the function of the first stage.
+     * @return  the stages.
+     * 
+     * @param <I>  the type of the items published to the pipeline.
+     * @param <O>  the type of the items coming out of the first stage.
+     **/
+    @SuppressWarnings("unchecked")
+    public static <I, O> Stages<I, O> from(Failable.Function<I, O, ?> function) {
+        return new Stages<I, O>(Collections.singletonList((Failable.Function<Object, Object, ?>)function));
+    }
+    
+    /**
+     * Publish the item to the pipeline, waiting for a space if the first ring buffer is full.
+     * 
+     * @param item  the item.
+     * @throws IllegalStateException  if the pipeline is closed.
+     **/
+    public void publish(I item) {
+        if (item == null)
+            throw new NullPointerException("item");
+        if (!ingress.put(item, waitStrategy))
+            throw new IllegalStateException("The pipeline is closed.");
+    }
+    
+    /**
+     * Stop accepting items and wait for all the published items to go through the pipeline.
+     * 
+     * If interrupted, this still waits for the workers and then restores the interrupt status.
+     **/
+    @Override
+    public void close() {
+        ingress.close();
+        boolean interrupted = false;
+        for (val thread : workers) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+    
+    //== Internal ==
+    
+    private static final class Worker implements java.lang.Runnable {
+        
+        private final int                                    stage;
+        private final Failable.Function<Object, Object, ?>   function;
+        private final Ring                                   input;
+        private final Ring                                   output;
+        private final WaitStrategy                           waitStrategy;
+        private final Failable.Consumer<? super Failure, ?>  deadLetter;
+        
+        Worker(
+                int                                    stage,
+                Failable.Function<Object, Object, ?>   function,
+                Ring                                   input,
+                Ring                                   output,
+                WaitStrategy                           waitStrategy,
+                Failable.Consumer<? super Failure, ?>  deadLetter) {
+            this.stage        = stage;
+            this.function     = function;
+            this.input        = input;
+            this.output       = output;
+            this.waitStrategy = waitStrategy;
+            this.deadLetter   = deadLetter;
+        }
+        
+        @Override
+        public void run() {
+            int attempt = 0;
+            while (true) {
+                val item = input.poll();
+                if (item == null) {
+                    if (input.isFinished())
+                        break;
+                    waitStrategy.idle(attempt++);
+                    continue;
+                }
+                
+                attempt = 0;
+                try {
+                    val result = function.apply(item);
+                    if ((result != null) && (output != null))
+                        output.put(result, waitStrategy);
+                } catch (Throwable exception) {
+                    try {
+                        deadLetter.accept(new Failure(stage, item, exception));
+                    } catch (Throwable ignored) {
+                        // The dead-letter consumer must not stop the stage.
+                    }
+                }
+            }
+            if (output != null)
+                output.close();
+        }
+    }
+    
+    @SuppressWarnings("unused")
+    private static class SequenceLeftPadding {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+    
+    private static class SequenceValue extends SequenceLeftPadding {
+        volatile long value;
+    }
+    
+    /**
+     * Sequence padded on both sides so that it has a cache line of its own.
+     **/
+    @SuppressWarnings("unused")
+    private static final class Sequence extends SequenceValue {
+        
+        private static final AtomicLongFieldUpdater<SequenceValue> VALUE
+                = AtomicLongFieldUpdater.newUpdater(SequenceValue.class, "value");
+        
+        long p9, p10, p11, p12, p13, p14, p15;
+        
+        long get() {
+            return value;
+        }
+        
+        void lazySet(long newValue) {
+            VALUE.lazySet(this, newValue);
+        }
+        
+        boolean compareAndSet(long expected, long newValue) {
+            return VALUE.compareAndSet(this, expected, newValue);
+        }
+    }
+    
+    /**
+     * Bounded ring buffer with per-slot published sequences.
+     * 
+     * The sign bit of the claimed sequence marks the ring as closed so that closing and claiming cannot interleave:
+     *   a claim after closing fails and every claim before it is drained by the consumer.
+     **/
+    private static final class Ring {
+        
+        private static final long CLOSED = Long.MIN_VALUE;
+        
+        private final Object[]        items;
+        private final AtomicLongArray published;
+        private final int             mask;
+        private final boolean         multiProducer;
+        // Written by the producers only.
+        private final Sequence        claimed  = new Sequence();
+        // Written by the consumer only.
+        private final Sequence        consumed = new Sequence();
+        
+        Ring(int capacity, boolean multiProducer) {
+            this.items         = new Object[capacity];
+            this.published     = new AtomicLongArray(capacity);
+            this.mask          = capacity - 1;
+            this.multiProducer = multiProducer;
+            for (int i = 0; i < capacity; i++)
+                published.set(i, -1);
+        }
+        
+        boolean put(Object item, WaitStrategy waitStrategy) {
+            long sequence;
+            if (multiProducer) {
+                do {
+                    sequence = claimed.get();
+                    if ((sequence & CLOSED) != 0)
+                        return false;
+                } while (!claimed.compareAndSet(sequence, sequence + 1));
+            } else {
+                sequence = claimed.get();
+                if ((sequence & CLOSED) != 0)
+                    return false;
+                claimed.lazySet(sequence + 1);
+            }
+            
+            int attempt = 0;
+            while ((sequence - consumed.get()) >= items.length)
+                waitStrategy.idle(attempt++);
+            
+            val slot = (int)sequence & mask;
+            items[slot] = item;
+            published.lazySet(slot, sequence);
+            return true;
+        }
+        
+        void close() {
+            long sequence;
+            do {
+                sequence = claimed.get();
+            } while (((sequence & CLOSED) == 0) && !claimed.compareAndSet(sequence, sequence | CLOSED));
+        }
+        
+        Object poll() {
+            val sequence = consumed.get();
+            val slot     = (int)sequence & mask;
+            if (published.get(slot) != sequence)
+                return null;
+            
+            val item = items[slot];
+            items[slot] = null;
+            consumed.lazySet(sequence + 1);
+            return item;
+        }
+        
+        // Closed and all the items claimed before closing are taken.
+        boolean isFinished() {
+            val sequence = claimed.get();
+            return ((sequence & CLOSED) != 0) && (consumed.get() == (sequence & ~CLOSED));
+        }
+    }
+    
+}
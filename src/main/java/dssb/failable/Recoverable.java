@@ -0,0 +1,244 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.util.Arrays;
+
+import lombok.val;
+
+/**
+ * Failables with exception handlers selected by the class of the thrown exception.
+ * 
+ * The handler registered for the closest class in the hierarchy of the exception is used
+ *   (the first one registered if there are more than one for the same class).
+ * The selected handler is cached per concrete exception class so the hierarchy is only walked once.
+ * A {@link FailableException} is unwrapped before its cause is matched against the handlers.
+ * If no handler matches, the original exception is thrown.
+ * A {@link DeadlineExceededException} is never recovered from, even by a handler for {@link Throwable}.
+ * 
+ * Each {@code recover}/{@code recoverWith} call creates a new lookup cache that holds per-class data,
+ *   so build the recoverable failable once and reuse it rather than building it for every call.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+public class Recoverable {
+    
+    private Recoverable() {
+    }
+    
+    /**
+     * Recoverable supplier.
+     * 
+     * @param <V>  the type of the return value.
+     * @param <T>  the type of the thrown exception.
+     **/
+    public static final class Supplier<V, T extends Throwable> implements Failable.Supplier<V, T> {
+        
+        private final Failable.Supplier<V, T>                       body;
+        private final Handlers<Failable.Function<Throwable, V, T>>  handlers;
+        
+        Supplier(Failable.Supplier<V, T> body, Handlers<Failable.Function<Throwable, V, T>> handlers) {
+            this.body     = body;
+            this.handlers = handlers;
+        }
+        
+        @Override
+        public V get() throws T {
+            try {
+                return body.get();
+            } catch (Throwable exception) {
+                val cause   = unwrap(exception);
+                val handler = handlers.handlerFor(cause);
+                if (handler == null)
+                    throw exception;
+                return handler.apply(cause);
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        public <E extends Throwable> Supplier<V, T> recover(
+                Class<E>                                         type,
+                Failable.Function<? super E, ? extends V, T>     handler) {
+            return new Supplier<V, T>(body, handlers.with(type, (Failable.Function<Throwable, V, T>)handler));
+        }
+        
+        @Override
+        public <E extends Throwable> Supplier<V, T> recoverWith(Class<E> type, Failable.Supplier<? extends V, T> fallback) {
+            return new Supplier<V, T>(body, handlers.with(type, exception -> fallback.get()));
+        }
+    }
+    
+    /**
+     * Recoverable function.
+     * 
+     * @param <V>  the input data type.
+     * @param <R>  the returned data type.
+     * @param <T>  the type of the thrown exception.
+     **/
+    public static final class Function<V, R, T extends Throwable> implements Failable.Function<V, R, T> {
+        
+        private final Failable.Function<V, R, T>                         body;
+        private final Handlers<Failable.BiFunction<V, Throwable, R, T>>  handlers;
+        
+        Function(Failable.Function<V, R, T> body, Handlers<Failable.BiFunction<V, Throwable, R, T>> handlers) {
+            this.body     = body;
+            this.handlers = handlers;
+        }
+        
+        @Override
+        public R apply(V value) throws T {
+            try {
+                return body.apply(value);
+            } catch (Throwable exception) {
+                val cause   = unwrap(exception);
+                val handler = handlers.handlerFor(cause);
+                if (handler == null)
+                    throw exception;
+                return handler.apply(value, cause);
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        public <E extends Throwable> Function<V, R, T> recover(
+                Class<E>                                         type,
+                Failable.Function<? super E, ? extends R, T>     handler) {
+            val casted = (Failable.Function<Throwable, R, T>)handler;
+            return new Function<V, R, T>(body, handlers.with(type, (value, exception) -> casted.apply(exception)));
+        }
+        
+        @Override
+        public <E extends Throwable> Function<V, R, T> recoverWith(
+                Class<E>                                         type,
+                Failable.Function<? super V, ? extends R, T>     fallback) {
+            return new Function<V, R, T>(body, handlers.with(type, (value, exception) -> fallback.apply(value)));
+        }
+    }
+    
+    /**
+     * Recoverable bi-function.
+     * 
+     * @param <V1> the input data type.
+     * @param <V2> the input data type.
+     * @param <R>  the returned data type.
+     * @param <T>  the type of the thrown exception.
+     **/
+    public static final class BiFunction<V1, V2, R, T extends Throwable> implements Failable.BiFunction<V1, V2, R, T> {
+        
+        private final Failable.BiFunction<V1, V2, R, T>         body;
+        private final Handlers<Handler<V1, V2, R, T>>           handlers;
+        
+        BiFunction(Failable.BiFunction<V1, V2, R, T> body, Handlers<Handler<V1, V2, R, T>> handlers) {
+            this.body     = body;
+            this.handlers = handlers;
+        }
+        
+        @Override
+        public R apply(V1 value1, V2 value2) throws T {
+            try {
+                return body.apply(value1, value2);
+            } catch (Throwable exception) {
+                val cause   = unwrap(exception);
+                val handler = handlers.handlerFor(cause);
+                if (handler == null)
+                    throw exception;
+                return handler.apply(value1, value2, cause);
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        public <E extends Throwable> BiFunction<V1, V2, R, T> recover(
+                Class<E>                                         type,
+                Failable.Function<? super E, ? extends R, T>     handler) {
+            val casted = (Failable.Function<Throwable, R, T>)handler;
+            return new BiFunction<V1, V2, R, T>(body, handlers.with(type, (value1, value2, exception) -> casted.apply(exception)));
+        }
+        
+        @Override
+        public <E extends Throwable> BiFunction<V1, V2, R, T> recoverWith(
+                Class<E>                                                     type,
+                Failable.BiFunction<? super V1, ? super V2, ? extends R, T>  fallback) {
+            return new BiFunction<V1, V2, R, T>(body, handlers.with(type, (value1, value2, exception) -> fallback.apply(value1, value2)));
+        }
+    }
+    
+    @FunctionalInterface
+    static interface Handler<V1, V2, R, T extends Throwable> {
+        public R apply(V1 value1, V2 value2, Throwable exception) throws T;
+    }
+    
+    /**
+     * Immutable list of handlers with per-class cached lookup.
+     * 
+     * @param <H>  the handler type.
+     **/
+    static final class Handlers<H> {
+        
+        @SuppressWarnings("rawtypes")
+        private static final Handlers EMPTY = new Handlers<>(new Class<?>[0], new Object[0]);
+        
+        private final Class<?>[] types;
+        private final Object[]   handlers;
+        
+        private final ClassValue<H> cache = new ClassValue<H>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            protected H computeValue(Class<?> exceptionType) {
+                for (Class<?> type = exceptionType; type != null; type = type.getSuperclass()) {
+                    for (int i = 0; i < types.length; i++) {
+                        if (types[i] == type)
+                            return (H)handlers[i];
+                    }
+                }
+                return null;
+            }
+        };
+        
+        private Handlers(Class<?>[] types, Object[] handlers) {
+            this.types    = types;
+            this.handlers = handlers;
+        }
+        
+        @SuppressWarnings("unchecked")
+        static <H> Handlers<H> empty() {
+            return (Handlers<H>)EMPTY;
+        }
+        
+        Handlers<H> with(Class<?> type, H handler) {
+            val newTypes    = Arrays.copyOf(types,    types.length + 1);
+            val newHandlers = Arrays.copyOf(handlers, handlers.length + 1);
+            newTypes[types.length]       = type;
+            newHandlers[handlers.length] = handler;
+            return new Handlers<H>(newTypes, newHandlers);
+        }
+        
+        H handlerFor(Throwable exception) {
+            // An expired deadline must stop the computation -- never recover from it.
+            if (exception instanceof DeadlineExceededException)
+                return null;
+            return cache.get(exception.getClass());
+        }
+    }
+    
+    static Throwable unwrap(Throwable exception) {
+        while ((exception instanceof FailableException) && (exception.getCause() != null))
+            exception = exception.getCause();
+        return exception;
+    }
+    
+}
@@ -0,0 +1,240 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import java.util.ArrayDeque;
+
+import lombok.val;
+
+/**
+ * A step of a recursive computation that is run in a loop instead of on the call stack.
+ * 
+ * A recursive call returns a suspended step ({@link #more(Failable.Supplier)}) instead of calling itself
+ *   and the results of recursive calls are combined with {@link #flatMap(Failable.Function)} and {@link #map(Failable.Function)};
+ *   {@link #run()} then evaluates the steps with an explicit stack so the depth of the recursion is only limited by the heap.
+ * The current deadline is checked while running.
+ * 
+ * For example, the size of a binary tree:
+ * <pre>
+ * Failable.Function&lt;Node, Integer, RuntimeException&gt; size = Trampoline.function((self, node) -&gt;
+ *     (node == null)
+ *         ? Trampoline.done(0)
+ *         : self.apply(node.left).flatMap(left -&gt; self.apply(node.right).map(right -&gt; left + right + 1)));
+ * </pre>
+ * 
+ * @param <R>  the result type.
+ * @param <T>  the type of the thrown exception.
+ * 
+ * @author NawaMan -- nawaman@dssb.io
+ */
+public abstract class Trampoline<R, T extends Throwable> {
+    
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+    
+    /**
+     * Body of a recursive function given a reference to itself to make the (suspended) recursive calls with.
+     * 
+     * @param <V>  the input type.
+     * @param <R>  the result type.
+     * @param <T>  the type of the thrown exception.
+     **/
+    @FunctionalInterface
+    public static interface Recursive<V, R, T extends Throwable> {
+        
+        /**
+         * Compute the result step for the input.
+         * 
+         * @param self   the function to make the recursive calls with.
+         * @param input  the input.
+         * @return  the result step.
+         * @throws T  the exception.
+         **/
+        public Trampoline<R, T> apply(Failable.Function<V, Trampoline<R, T>, T> self, V input) throws T;
+        
+    }
+    
+    /**
+     * Body of a recursive bi-function given a reference to itself to make the (suspended) recursive calls with.
+     * 
+     * @param <V1>  the first input type.
+     * @param <V2>  the second input type.
+     * @param <R>   the result type.
+     * @param <T>   the type of the thrown exception.
+     **/
+    @FunctionalInterface
+    public static interface BiRecursive<V1, V2, R, T extends Throwable> {
+        
+        /**
+         * Compute the result step for the inputs.
+         * 
+         * @param self    the bi-function to make the recursive calls with.
+         * @param input1  the first input.
+         * @param input2  the second input.
+         * @return  the result step.
+         * @throws T  the exception.
+         **/
+        public Trampoline<R, T> apply(Failable.BiFunction<V1, V2, Trampoline<R, T>, T> self, V1 input1, V2 input2) throws T;
+        
+    }
+    
+    Trampoline() {
+    }
+    
+    /**
+     * Returns a finished step.
+     * 
+     * @param value  the result.
+     * @return  the step.
+     * 
+     * @param <R>  the result type.
+     * @param <T>  the type of the thrown exception.
+     **/
+    public static <R, T extends Throwable> Trampoline<R, T> done(R value) {
+        return new Done<R, T>(value);
+    }
+    
+    /**
+     * Returns a step that is computed later by the given supplier.
+     * 
+     * @param next  the supplier of the step.
+     * @return  the step.
+     * 
+     * @param <R>  the result type.
+     * @param <T>  the type of the thrown exception.
+     **/
+    public static <R, T extends Throwable> Trampoline<R, T> more(Failable.Supplier<Trampoline<R, T>, T> next) {
+        return new More<R, T>(next);
+    }
+    
+    /**
+     * Returns a failable function that runs the given recursive body without growing the call stack.
+     * 
+     * @param body  the body.
+     * @return  the function.
+     * 
+     * @param <V>  the input type.
+     * @param <R>  the result type.
+     * @param <T>  the type of the thrown exception.
+     **/
+    public static <V, R, T extends Throwable> Failable.Function<V, R, T> function(Recursive<V, R, T> body) {
+        val self = new Failable.Function<V, Trampoline<R, T>, T>() {
+            @Override
+            public Trampoline<R, T> apply(V input) {
+                return more(() -> body.apply(this, input));
+            }
+        };
+        return input -> self.apply(input).run();
+    }
+    
+    /**
+     * Returns a failable bi-function that runs the given recursive body without growing the call stack.
+     * 
+     * @param body  the body.
+     * @return  the bi-function.
+     * 
+     * @param <V1>  the first input type.
+     * @param <V2>  the second input type.
+     * @param <R>   the result type.
+     * @param <T>   the type of the thrown exception.
+     **/
+    public static <V1, V2, R, T extends Throwable> Failable.BiFunction<V1, V2, R, T> biFunction(BiRecursive<V1, V2, R, T> body) {
+        val self = new Failable.BiFunction<V1, V2, Trampoline<R, T>, T>() {
+            @Override
+            public Trampoline<R, T> apply(V1 input1, V2 input2) {
+                return more(() -> body.apply(this, input1, input2));
+            }
+        };
+        return (input1, input2) -> self.apply(input1, input2).run();
+    }
+    
+    /**
+     * Returns a step that continues with the step returned by the given function for the result of this step.
+     * 
+     * @param next  the function.
+     * @return  the step.
+     * 
+     * @param <S>  the type of the new result.
+     **/
+    public <S> Trampoline<S, T> flatMap(Failable.Function<? super R, Trampoline<S, T>, T> next) {
+        return new FlatMap<R, S, T>(this, next);
+    }
+    
+    /**
+     * Returns a step whose result is the result of this step mapped with the given function.
+     * 
+     * @param mapper  the function.
+     * @return  the step.
+     * 
+     * @param <S>  the type of the new result.
+     **/
+    public <S> Trampoline<S, T> map(Failable.Function<? super R, S, T> mapper) {
+        return flatMap(value -> done(mapper.apply(value)));
+    }
+    
+    /**
+     * Run the steps until the final result.
+     * 
+     * @return  the result.
+     * @throws T  the exception thrown by a step.
+     **/
+    @SuppressWarnings("unchecked")
+    public final R run() throws T {
+        val continuations = new ArrayDeque<Failable.Function<Object, Trampoline<Object, T>, T>>();
+        Trampoline<Object, T> current = (Trampoline<Object, T>)this;
+        int steps = 0;
+        while (true) {
+            if ((++steps % DEADLINE_CHECK_INTERVAL) == 0)
+                Deadline.check();
+            
+            if (current instanceof FlatMap) {
+                val flatMap = (FlatMap<Object, Object, T>)current;
+                continuations.push((Failable.Function<Object, Trampoline<Object, T>, T>)flatMap.next);
+                current = flatMap.source;
+            } else if (current instanceof More) {
+                current = ((More<Object, T>)current).next.get();
+            } else {
+                val value = ((Done<Object, T>)current).value;
+                if (continuations.isEmpty())
+                    return (R)value;
+                current = continuations.pop().apply(value);
+            }
+        }
+    }
+    
+    private static final class Done<R, T extends Throwable> extends Trampoline<R, T> {
+        final R value;
+        Done(R value) {
+            this.value = value;
+        }
+    }
+    
+    private static final class More<R, T extends Throwable> extends Trampoline<R, T> {
+        final Failable.Supplier<Trampoline<R, T>, T> next;
+        More(Failable.Supplier<Trampoline<R, T>, T> next) {
+            this.next = next;
+        }
+    }
+    
+    private static final class FlatMap<A, R, T extends Throwable> extends Trampoline<R, T> {
+        final Trampoline<A, T>                                  source;
+        final Failable.Function<? super A, Trampoline<R, T>, T> next;
+        FlatMap(Trampoline<A, T> source, Failable.Function<? super A, Trampoline<R, T>, T> next) {
+            this.source = source;
+            this.next   = next;
+        }
+    }
+    
+}
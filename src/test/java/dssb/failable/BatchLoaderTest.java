@@ -0,0 +1,138 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import lombok.val;
+
+@SuppressWarnings("javadoc")
+public class BatchLoaderTest {
+    
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    
+    private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<List<Integer>>());
+    
+    private final Failable.Function<List<Integer>, Map<Integer, String>, IOException> lookup = keys -> {
+        batches.add(keys);
+        val map = new HashMap<Integer, String>();
+        for (val key : keys) {
+            if (key < 0)
+                throw new IOException("Negative: " + key);
+            if (key != 0)
+                map.put(key, "#" + key);
+        }
+        return map;
+    };
+    
+    @After
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+    
+    @Test
+    public void testLoad_batched() throws InterruptedException, ExecutionException {
+        val loader  = new BatchLoader<>(lookup, 1, TimeUnit.HOURS, 100, scheduler);
+        val futures = new ArrayList<CompletableFuture<String>>();
+        for (int i = 0; i < 5; i++)
+            futures.add(loader.load(i % 3));
+        loader.dispatch();
+        
+        assertEquals("[[0, 1, 2]]", batches.toString());
+        assertNull(futures.get(0).get());
+        assertEquals("#1", futures.get(1).get());
+        assertEquals("#2", futures.get(2).get());
+        assertSame(futures.get(1), futures.get(4));
+    }
+    
+    @Test
+    public void testLoad_maxBatchSize() throws InterruptedException, ExecutionException {
+        val loader  = new BatchLoader<>(lookup, 10, TimeUnit.MILLISECONDS, 2, scheduler);
+        val futures = new ArrayList<CompletableFuture<String>>();
+        for (int i = 1; i <= 5; i++)
+            futures.add(loader.load(i));
+        for (int i = 0; i < 5; i++)
+            assertEquals("#" + (i + 1), futures.get(i).get());
+        
+        Collections.sort(batches, (a, b) -> a.get(0) - b.get(0));
+        assertEquals("[[1, 2], [3, 4], [5]]", batches.toString());
+    }
+    
+    @Test
+    public void testApply_concurrentCallers() throws InterruptedException, ExecutionException {
+        val loader  = new BatchLoader<>(lookup, 50, TimeUnit.MILLISECONDS, 100, scheduler);
+        val callers = Executors.newFixedThreadPool(4);
+        try {
+            val futures = new ArrayList<java.util.concurrent.Future<String>>();
+            for (int i = 1; i <= 4; i++) {
+                val key = i;
+                futures.add(callers.submit(() -> loader.gracefully().apply(key)));
+            }
+            for (int i = 0; i < 4; i++)
+                assertEquals("#" + (i + 1), futures.get(i).get());
+            assertEquals(1, batches.size());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testApply_failure() {
+        val loader = new BatchLoader<>(lookup, 1, TimeUnit.MILLISECONDS, 100, scheduler);
+        try {
+            loader.apply(-1);
+            fail("Expect an exception.");
+        } catch (IOException e) {
+            assertEquals("Negative: -1", e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testLoad_missingKeyFailure() throws InterruptedException, ExecutionException {
+        val loader  = new BatchLoader<>(lookup, key -> new IOException("Missing: " + key), 1, TimeUnit.HOURS, 100, scheduler);
+        val missing = loader.load(0);
+        val found   = loader.load(1);
+        loader.dispatch();
+        
+        assertEquals("[[0, 1]]", batches.toString());
+        assertEquals("#1", found.get());
+        try {
+            missing.get();
+            fail("Expect an exception.");
+        } catch (ExecutionException e) {
+            assertEquals("Missing: 0", e.getCause().getMessage());
+        }
+    }
+    
+}
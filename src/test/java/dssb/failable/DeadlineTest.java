@@ -0,0 +1,93 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import lombok.val;
+
+@SuppressWarnings("javadoc")
+public class DeadlineTest {
+    
+    @Test
+    public void testNoDeadline() {
+        assertNull(Deadline.current());
+        val supplier = Failables.Supplier.of(()->"Hello");
+        assertEquals("Hello", supplier.gracefully().get());
+    }
+    
+    @Test
+    public void testExpiredDeadline_failFast() {
+        val counter  = new AtomicInteger();
+        val supplier = Failables.Supplier.of(()->counter.incrementAndGet());
+        val deadline = Deadline.after(-1, TimeUnit.MILLISECONDS);
+        try {
+            deadline.call(()->supplier.gracefully().get());
+            fail("Expect the deadline to be exceeded.");
+        } catch (DeadlineExceededException e) {
+            assertSame(DeadlineExceededException.INSTANCE, e);
+        }
+        assertEquals(0, counter.get());
+        assertNull(Deadline.current());
+    }
+    
+    @Test
+    public void testExpiredDeadline_whileRunning() throws InterruptedException {
+        val counter = new AtomicInteger();
+        val inner   = Failables.Runnable.of(()->counter.incrementAndGet());
+        try {
+            Deadline.after(50, TimeUnit.MILLISECONDS).run(()->{
+                inner.gracefully().run();
+                Thread.sleep(100);
+                inner.carelessly().run();
+                inner.gracefully().run();
+            });
+            fail("Expect the deadline to be exceeded.");
+        } catch (DeadlineExceededException e) {
+            // This is expected.
+        }
+        assertEquals(1, counter.get());
+    }
+    
+    @Test
+    public void testNested_earlierDeadlineWins() {
+        val outer = Deadline.after(1, TimeUnit.SECONDS);
+        outer.run(()->{
+            Deadline.after(1, TimeUnit.HOURS).run(()->{
+                assertSame(outer, Deadline.current());
+            });
+            assertSame(outer, Deadline.current());
+        });
+    }
+    
+    @Test
+    public void testPropagate() throws InterruptedException, ExecutionException {
+        val deadline = Deadline.after(1, TimeUnit.MINUTES);
+        val future   = deadline.call(()->CompletableFuture.supplyAsync(Deadline.propagate(()->Deadline.current())));
+        assertSame(deadline, future.get());
+    }
+    
+}
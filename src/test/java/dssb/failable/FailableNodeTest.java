@@ -0,0 +1,147 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import lombok.val;
+
+@SuppressWarnings("javadoc")
+public class FailableNodeTest {
+    
+    @Test
+    public void testDiamond_eachNodeComputedOnce() throws IOException {
+        val counter = new AtomicInteger();
+        val root    = FailableNode.<Integer, IOException>of(()->{ counter.incrementAndGet(); return 10; });
+        val left    = FailableNode.of(root, (Integer v)->v + 1);
+        val right   = FailableNode.of(root, (Integer v)->v * 2);
+        val sum     = FailableNode.of(left, right, (Integer a, Integer b)->a + b);
+        
+        assertEquals(31, sum.get().intValue());
+        assertEquals(31, sum.get().intValue());
+        assertEquals(20, right.get().intValue());
+        assertEquals(1, counter.get());
+    }
+    
+    @Test
+    public void testIndependentNodes_runInParallel() throws InterruptedException {
+        val latch = new CountDownLatch(2);
+        val wait  = Failables.Supplier.of(()->{
+            latch.countDown();
+            return latch.await(5, TimeUnit.SECONDS);
+        });
+        val node1 = FailableNode.of(wait);
+        val node2 = FailableNode.of(wait);
+        val both  = FailableNode.of(node1, node2, (Boolean a, Boolean b)->a && b);
+        assertEquals(true, both.get());
+    }
+    
+    @Test
+    public void testFailure_shortCircuitsDependents() {
+        val exception = new IOException();
+        val counter   = new AtomicInteger();
+        val failing   = FailableNode.<Integer, IOException>of(()->{ throw exception; });
+        val dependent = FailableNode.of(failing, (Integer v)->counter.incrementAndGet());
+        try {
+            dependent.get();
+            fail("Expect an exception.");
+        } catch (IOException e) {
+            assertSame(exception, e);
+        }
+        assertEquals(0, counter.get());
+    }
+    
+    @Test
+    public void testFailure_doesNotWaitForOtherDependency() {
+        val exception = new IOException();
+        val failing   = FailableNode.<Integer, IOException>of(()->{ throw exception; });
+        val slow      = FailableNode.<Integer, IOException>of(()->{
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+        val combined  = FailableNode.of(slow, failing, (Integer a, Integer b)->a + b);
+        val executor  = Executors.newCachedThreadPool();
+        val start     = System.currentTimeMillis();
+        try {
+            combined.get(executor);
+            fail("Expect an exception.");
+        } catch (IOException e) {
+            assertSame(exception, e);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue((System.currentTimeMillis() - start) < 1000);
+    }
+    
+    @Test
+    public void testDeadline_expiredWhileQueued() throws Exception {
+        val executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.execute(()->{
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            val node   = FailableNode.<Integer, RuntimeException>of(()->1);
+            val future = Deadline.after(50, TimeUnit.MILLISECONDS).call(()->node.evaluate(executor));
+            try {
+                future.get(2, TimeUnit.SECONDS);
+                fail("Expect an exception.");
+            } catch (java.util.concurrent.ExecutionException e) {
+                assertSame(DeadlineExceededException.INSTANCE, e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testRejected_failsTheNode() throws Exception {
+        val node = FailableNode.<Integer, RuntimeException>of(()->1);
+        try {
+            node.evaluate(command->{ throw new RejectedExecutionException("Full"); });
+            fail("Expect an exception.");
+        } catch (RejectedExecutionException e) {
+        }
+        val future = node.evaluate(ForkJoinPool.commonPool());
+        try {
+            future.get(2, TimeUnit.SECONDS);
+            fail("Expect an exception.");
+        } catch (java.util.concurrent.ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+    
+}
@@ -16,8 +16,16 @@
 package dssb.failable;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
@@ -61,4 +69,67 @@ public class FailableRunnableTest {
         assertEquals(5, halfOf10.value().intValue());
     }
     
+    @Test
+    public void testCoalescing() throws InterruptedException {
+        val executor = Executors.newFixedThreadPool(4);
+        try {
+            val started   = new CountDownLatch(1);
+            val release   = new CountDownLatch(1);
+            val counter   = new AtomicInteger();
+            val failure   = new AtomicReference<Throwable>();
+            val exception = new IOException();
+            val runnable  = Failables.Runnable.of(()->{
+                started.countDown();
+                release.await();
+                if (counter.incrementAndGet() == 2)
+                    throw exception;
+            }).coalescing(executor, failure::set);
+            
+            runnable.run();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 100; i++)
+                runnable.run();
+            release.countDown();
+            
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(2, counter.get());
+            assertSame(exception, failure.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testCoalescing_callsBeforeStart() {
+        val queued   = new ArrayList<java.lang.Runnable>();
+        val counter  = new AtomicInteger();
+        val runnable = Failables.Runnable.of(()->counter.incrementAndGet()).coalescing(queued::add);
+        
+        for (int i = 0; i < 10; i++)
+            runnable.run();
+        assertEquals(1, queued.size());
+        
+        queued.remove(0).run();
+        assertEquals(1, counter.get());
+        assertTrue(queued.isEmpty());
+    }
+    
+    @Test
+    public void testDebounced() throws InterruptedException {
+        val scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            val counter  = new AtomicInteger();
+            val runnable = Failables.Runnable.of(()->counter.incrementAndGet()).debounced(50, TimeUnit.MILLISECONDS, scheduler);
+            for (int i = 0; i < 10; i++) {
+                runnable.run();
+                Thread.sleep(5);
+            }
+            Thread.sleep(200);
+            assertEquals(1, counter.get());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+    
 }
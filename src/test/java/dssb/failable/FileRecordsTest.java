@@ -0,0 +1,115 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import lombok.val;
+
+@SuppressWarnings("javadoc")
+public class FileRecordsTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private static String text(ByteBuffer record) {
+        return StandardCharsets.UTF_8.decode(record).toString();
+    }
+    
+    @Test
+    public void testLines_inOrderAcrossChunks() throws IOException {
+        val path     = folder.getRoot().toPath().resolve("lines.txt");
+        val expected = new ArrayList<String>();
+        val content  = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            expected.add("line-" + i);
+            content.append("line-").append(i).append((i % 2 == 0) ? "\r\n" : "\n");
+        }
+        Files.write(path, content.toString().getBytes(StandardCharsets.UTF_8));
+        
+        val lines = FileRecords.lines(path).withChunkSize(100).map(FileRecordsTest::text);
+        assertEquals(expected, lines);
+    }
+    
+    @Test
+    public void testLengthPrefixed() throws IOException {
+        val path   = folder.getRoot().toPath().resolve("records.bin");
+        val bytes  = new ByteArrayOutputStream();
+        val output = new DataOutputStream(bytes);
+        for (int i = 0; i < 500; i++) {
+            output.writeInt(4);
+            output.writeInt(i);
+        }
+        Files.write(path, bytes.toByteArray());
+        
+        val sum = new AtomicInteger();
+        FileRecords.lengthPrefixed(path).withChunkSize(64).forEach(record -> {
+            assertEquals(4, record.remaining());
+            sum.addAndGet(record.getInt(record.position()));
+        });
+        assertEquals(499 * 500 / 2, sum.get());
+    }
+    
+    @Test
+    public void testErrorHandler() throws IOException {
+        val path = folder.getRoot().toPath().resolve("numbers.txt");
+        Files.write(path, "1\n2\nthree\n4\nfive".getBytes(StandardCharsets.UTF_8));
+        
+        val failed  = Collections.synchronizedList(new ArrayList<String>());
+        val numbers = FileRecords.lines(path).withChunkSize(4).map(
+                record    -> Integer.parseInt(text(record)),
+                (offset, record, exception) -> failed.add(offset + ":" + text(record)));
+        assertEquals("[1, 2, 4]", numbers.toString());
+        Collections.sort(failed);
+        assertEquals("[12:five, 4:three]", failed.toString());
+    }
+    
+    @Test
+    public void testFailure_rethrown() throws IOException {
+        val path = folder.getRoot().toPath().resolve("numbers.txt");
+        Files.write(path, "1\n2\nthree\n4".getBytes(StandardCharsets.UTF_8));
+        
+        val failable = Failables.Function.<ByteBuffer, Integer, Exception>of(record -> {
+            val text = text(record);
+            if (!text.matches("[0-9]+"))
+                throw new Exception(text);
+            return Integer.parseInt(text);
+        });
+        try {
+            List<Integer> numbers = FileRecords.lines(path).map(failable);
+            fail("Expect an exception but get: " + numbers);
+        } catch (Exception e) {
+            assertEquals("three", e.getMessage());
+        }
+    }
+    
+}
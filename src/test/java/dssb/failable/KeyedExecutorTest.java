@@ -0,0 +1,137 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import lombok.val;
+
+@SuppressWarnings("javadoc")
+public class KeyedExecutorTest {
+    
+    @Test
+    public void testPerKeyOrder_andFailureIsolation() throws InterruptedException {
+        val keyCount   = 10;
+        val eventCount = 1000;
+        val executor   = Executors.newFixedThreadPool(4);
+        try {
+            val seen     = new ConcurrentHashMap<Integer, List<Integer>>();
+            val failures = Collections.synchronizedList(new ArrayList<Integer>());
+            val done     = new CountDownLatch(keyCount * eventCount);
+            val consumer = Failables.Consumer.<int[], IOException>of(event -> {
+                if (event[1] % 100 == 99)
+                    throw new IOException();
+                seen.computeIfAbsent(event[0], k -> Collections.synchronizedList(new ArrayList<Integer>())).add(event[1]);
+                done.countDown();
+            });
+            val keyed = new KeyedExecutor<Integer, int[], IOException>(consumer, executor, 4,
+                    (key, event, exception) -> {
+                        failures.add(event[1]);
+                        done.countDown();
+                    });
+            
+            for (int i = 0; i < eventCount; i++) {
+                for (int key = 0; key < keyCount; key++)
+                    keyed.submit(key, new int[] { key, i });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            
+            assertEquals(keyCount * eventCount / 100, failures.size());
+            for (val entry : seen.entrySet()) {
+                val events = entry.getValue();
+                assertEquals(eventCount - eventCount / 100, events.size());
+                for (int i = 1; i < events.size(); i++)
+                    assertTrue(events.get(i - 1) < events.get(i));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testRejectedSubmit_valueNotProcessed() {
+        val reject   = new AtomicBoolean(true);
+        val executor = (Executor)(task -> {
+            if (reject.get())
+                throw new RejectedExecutionException();
+            task.run();
+        });
+        val seen     = new ArrayList<String>();
+        val failures = new ArrayList<String>();
+        val keyed    = new KeyedExecutor<Integer, String, RuntimeException>(seen::add, executor, 1,
+                (key, value, exception) -> failures.add(value));
+        try {
+            keyed.submit(1, "rejected");
+            fail("Expect an exception.");
+        } catch (RejectedExecutionException e) {
+        }
+        
+        reject.set(false);
+        keyed.submit(1, "accepted");
+        assertEquals("[accepted]", seen.toString());
+        assertEquals("[]",         failures.toString());
+    }
+    
+    @Test
+    public void testRejectedReschedule_reportedToFailureHandler() {
+        val reject   = new AtomicBoolean(false);
+        val tasks    = new ArrayList<java.lang.Runnable>();
+        val executor = (Executor)(task -> {
+            if (reject.get())
+                throw new RejectedExecutionException();
+            tasks.add(task);
+        });
+        val seen     = new ArrayList<Integer>();
+        val failures = new ArrayList<Integer>();
+        val keyed    = new KeyedExecutor<Integer, Integer, RuntimeException>(seen::add, executor, 1,
+                (key, value, exception) -> {
+                    if (exception instanceof RejectedExecutionException)
+                        failures.add(value);
+                });
+        for (int i = 0; i < 300; i++)
+            keyed.submit(1, i);
+        assertEquals(1, tasks.size());
+        
+        reject.set(true);
+        tasks.remove(0).run();
+        assertEquals(256, seen.size());
+        assertEquals(44,  failures.size());
+        assertEquals(256, (int)failures.get(0));
+        
+        // The stripe is not stuck.
+        reject.set(false);
+        keyed.submit(1, 300);
+        tasks.remove(0).run();
+        assertEquals(300, (int)seen.get(256));
+    }
+    
+}
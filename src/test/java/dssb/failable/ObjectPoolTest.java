@@ -0,0 +1,204 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import lombok.val;
+
+@SuppressWarnings("javadoc")
+public class ObjectPoolTest {
+    
+    private final AtomicInteger created = new AtomicInteger(0);
+    
+    private final Failable.Supplier<int[], IOException> factory = () -> new int[] { created.incrementAndGet() };
+    
+    @Test
+    public void testBorrow_reuse() throws IOException {
+        val pool = new ObjectPool<int[], IOException>(factory, null, 2, 1, TimeUnit.HOURS);
+        int[] first;
+        try (val lease = pool.borrow()) {
+            first = lease.get();
+        }
+        try (val lease = pool.borrow()) {
+            assertSame(first, lease.get());
+        }
+        assertEquals(1, created.get());
+        assertEquals(1, pool.idleCount());
+    }
+    
+    @Test
+    public void testBorrow_bounded() throws IOException {
+        val pool   = new ObjectPool<int[], IOException>(factory, null, 2, 1, TimeUnit.HOURS);
+        val lease1 = pool.borrow();
+        val lease2 = pool.borrow();
+        assertNull(pool.borrow(20, TimeUnit.MILLISECONDS));
+        assertEquals(2, pool.size());
+        
+        lease1.close();
+        try (val lease3 = pool.borrow(20, TimeUnit.MILLISECONDS)) {
+            assertSame(lease1.get(), lease3.get());
+        }
+        lease2.close();
+    }
+    
+    @Test
+    public void testBorrow_validation() throws IOException {
+        val pool = new ObjectPool<int[], IOException>(factory, value -> value[0] != 1, 2, 1, TimeUnit.HOURS);
+        pool.borrow().close();
+        try (val lease = pool.borrow()) {
+            assertEquals(2, lease.get()[0]);
+        }
+        assertEquals(1, pool.size());
+    }
+    
+    @Test
+    public void testBorrow_factoryFailure() {
+        val pool = new ObjectPool<int[], IOException>(() -> { throw new IOException("Down"); }, null, 2, 1, TimeUnit.HOURS);
+        try {
+            pool.borrow();
+            fail("Expect an exception.");
+        } catch (IOException e) {
+            assertEquals("Down", e.getMessage());
+        }
+        assertEquals(0, pool.size());
+    }
+    
+    @Test
+    public void testEvictIdle() throws IOException, InterruptedException {
+        val pool  = new ObjectPool<int[], IOException>(factory, null, 2, 10, TimeUnit.MILLISECONDS);
+        val lease = pool.borrow();
+        pool.borrow().close();
+        Thread.sleep(30);
+        
+        assertEquals(1, pool.evictIdle());
+        assertEquals(1, pool.size());
+        lease.close();
+    }
+    
+    @Test
+    public void testBorrow_concurrent() throws Exception {
+        val pool     = new ObjectPool<int[], IOException>(factory, null, 4, 1, TimeUnit.HOURS);
+        val inUse    = new AtomicInteger(0);
+        val maxInUse = new AtomicInteger(0);
+        val executor = Executors.newFixedThreadPool(16);
+        try {
+            val futures = new ArrayList<java.util.concurrent.Future<?>>();
+            for (int t = 0; t < 16; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        try (val lease = pool.borrow()) {
+                            val count = inUse.incrementAndGet();
+                            maxInUse.accumulateAndGet(count, Math::max);
+                            Thread.yield();
+                            inUse.decrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (val future : futures)
+                future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(maxInUse.get() <= 4);
+        assertTrue(created.get() <= 4);
+        assertEquals(pool.size(), pool.idleCount());
+    }
+    
+    @Test
+    public void testRelease_notBlockedByFactoryCall() throws Exception {
+        val pool     = new ObjectPool<int[], Exception>(() -> {
+            if (created.incrementAndGet() > 1)
+                Thread.sleep(1000);
+            return new int[] { created.get() };
+        }, null, 2, 1, TimeUnit.HOURS);
+        val lease    = pool.borrow();
+        val executor = Executors.newSingleThreadExecutor();
+        try {
+            val second = executor.submit(() -> pool.borrow());
+            Thread.sleep(100);
+            
+            val start = System.nanoTime();
+            lease.close();
+            assertTrue((System.nanoTime() - start) < TimeUnit.MILLISECONDS.toNanos(100));
+            second.get().close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testClose_failsWaitingBorrowers() throws Exception {
+        val pool     = new ObjectPool<int[], IOException>(factory, null, 1, 1, TimeUnit.HOURS);
+        val lease    = pool.borrow();
+        val executor = Executors.newSingleThreadExecutor();
+        try {
+            val waiting = executor.submit(() -> pool.borrow());
+            Thread.sleep(50);
+            pool.close();
+            try {
+                waiting.get(5, TimeUnit.SECONDS);
+                fail("Expect an exception.");
+            } catch (java.util.concurrent.ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            lease.close();
+            assertEquals(0, pool.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testClose_duringFactoryCall() throws Exception {
+        val started  = new java.util.concurrent.CountDownLatch(1);
+        val pool     = new ObjectPool<int[], Exception>(() -> {
+            started.countDown();
+            Thread.sleep(200);
+            return new int[] { created.incrementAndGet() };
+        }, null, 1, 1, TimeUnit.HOURS);
+        val executor = Executors.newSingleThreadExecutor();
+        try {
+            val borrowing = executor.submit(() -> pool.borrow());
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            pool.close();
+            try {
+                borrowing.get(5, TimeUnit.SECONDS);
+                fail("Expect an exception.");
+            } catch (java.util.concurrent.ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            assertEquals(0, pool.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+}
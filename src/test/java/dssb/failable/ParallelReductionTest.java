@@ -0,0 +1,105 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Test;
+
+import lombok.val;
+
+@SuppressWarnings("javadoc")
+public class ParallelReductionTest {
+    
+    @Test
+    public void testReduceAll_sum() {
+        val values = new ArrayList<Long>();
+        for (long i = 1; i <= 100_000; i++)
+            values.add(i);
+        
+        Failable.BiFunction<Long, Long, Long, RuntimeException> sum = (a, b) -> a + b;
+        assertEquals(5_000_050_000L, (long)Failable.BiFunction.reduceAll(sum, values, 0L, 4));
+        assertEquals(5_000_050_000L, (long)Failable.BiFunction.reduceAll(sum, values, 0L, 1));
+    }
+    
+    @Test
+    public void testReduceAll_keepOrder() {
+        val values = new ArrayList<String>();
+        val expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            values.add(String.valueOf(i % 10));
+            expected.append(i % 10);
+        }
+        
+        Failable.BiFunction<String, String, String, RuntimeException> concat = (a, b) -> a + b;
+        assertEquals(expected.toString(), Failable.BiFunction.reduceAll(concat, values, "", 8));
+    }
+    
+    @Test
+    public void testReduceAll_empty() {
+        Failable.BiFunction<Long, Long, Long, RuntimeException> sum = (a, b) -> a + b;
+        assertEquals(0L, (long)Failable.BiFunction.reduceAll(sum, Collections.<Long>emptyList(), 0L, 4));
+    }
+    
+    @Test
+    public void testReduceAll_failure() {
+        val values = new ArrayList<Integer>();
+        for (int i = 0; i < 2000; i++)
+            values.add(i);
+        
+        val calls = new AtomicInteger(0);
+        Failable.BiFunction<Integer, Integer, Integer, IOException> combiner = (a, b) -> {
+            if (calls.incrementAndGet() == 10)
+                throw new IOException("Tenth");
+            LockSupport.parkNanos(1_000_000);
+            return a + b;
+        };
+        try {
+            Failable.BiFunction.reduceAll(combiner, values, 0, 4);
+            fail("Expect an exception.");
+        } catch (IOException e) {
+            assertEquals("Tenth", e.getMessage());
+        }
+        // The other pieces stop soon after the failure.
+        assertTrue(calls.get() < 100);
+    }
+    
+    @Test
+    public void testReduceAll_givenPool() {
+        val values = new ArrayList<Long>();
+        for (long i = 1; i <= 10_000; i++)
+            values.add(i);
+        
+        Failable.BiFunction<Long, Long, Long, RuntimeException> sum = (a, b) -> a + b;
+        val pool = new ForkJoinPool(3);
+        try {
+            for (int i = 0; i < 10; i++)
+                assertEquals(50_005_000L, (long)Failable.BiFunction.reduceAll(sum, values, 0L, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+}
@@ -0,0 +1,158 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import lombok.val;
+
+@SuppressWarnings("javadoc")
+public class PersistentCacheTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @Test
+    public void testCached_surviveReopen() throws IOException {
+        val path     = folder.getRoot().toPath().resolve("cache.bin");
+        val counter  = new AtomicInteger();
+        val function = Failables.Function.<String, String, RuntimeException>of(s->{ counter.incrementAndGet(); return "#" + s; });
+        
+        try (val cache = function.persistentlyCached(path, PersistentCache.Codec.STRING, PersistentCache.Codec.STRING)) {
+            assertEquals("#one", cache.apply("one"));
+            assertEquals("#one", cache.apply("one"));
+            assertEquals("#two", cache.apply("two"));
+            assertEquals(2, counter.get());
+        }
+        try (val cache = function.persistentlyCached(path, PersistentCache.Codec.STRING, PersistentCache.Codec.STRING)) {
+            assertEquals(2, cache.size());
+            assertEquals("#one", cache.apply("one"));
+            assertEquals("#two", cache.apply("two"));
+            assertEquals(2, counter.get());
+        }
+    }
+    
+    @Test
+    public void testManyRecords_acrossRegions() throws IOException {
+        val path     = folder.getRoot().toPath().resolve("cache.bin");
+        val function = Failables.Function.<Long, Long, RuntimeException>of(l->l * l);
+        
+        try (PersistentCache<Long, Long, RuntimeException> cache = new PersistentCache<>(function, path, PersistentCache.Codec.LONG, PersistentCache.Codec.LONG, 1000)) {
+            for (long i = 0; i < 5000; i++)
+                assertEquals(i * i, cache.apply(i).longValue());
+        }
+        val failing = Failables.Function.<Long, Long, IOException>of(l->{ throw new IOException(); });
+        try (PersistentCache<Long, Long, IOException> cache = new PersistentCache<>(failing, path, PersistentCache.Codec.LONG, PersistentCache.Codec.LONG, 1000)) {
+            assertEquals(5000, cache.size());
+            for (long i = 0; i < 5000; i++)
+                assertEquals(i * i, cache.apply(i).longValue());
+        }
+    }
+    
+    @Test
+    public void testCorruptedTail_truncated() throws IOException {
+        val path     = folder.getRoot().toPath().resolve("cache.bin");
+        val counter  = new AtomicInteger();
+        val function = Failables.Function.<String, String, RuntimeException>of(s->{ counter.incrementAndGet(); return "#" + s; });
+        
+        try (val cache = function.persistentlyCached(path, PersistentCache.Codec.STRING, PersistentCache.Codec.STRING)) {
+            cache.apply("one");
+            cache.apply("two");
+        }
+        // A negative key length in the first record.
+        try (val channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write((ByteBuffer)ByteBuffer.allocate(4).putInt(-12).flip(), 16);
+        }
+        try (val cache = function.persistentlyCached(path, PersistentCache.Codec.STRING, PersistentCache.Codec.STRING)) {
+            assertEquals(0, cache.size());
+            assertEquals("#one", cache.apply("one"));
+            assertEquals(3, counter.get());
+        }
+        try (val cache = function.persistentlyCached(path, PersistentCache.Codec.STRING, PersistentCache.Codec.STRING)) {
+            assertEquals(1, cache.size());
+            assertEquals("#one", cache.apply("one"));
+            assertEquals(3, counter.get());
+        }
+    }
+    
+    @Test
+    public void testNullAndException_notCached() throws IOException {
+        val path     = folder.getRoot().toPath().resolve("cache.bin");
+        val counter  = new AtomicInteger();
+        val function = Failables.Function.<String, String, IOException>of(s->{
+            counter.incrementAndGet();
+            if (s.isEmpty())
+                throw new IOException();
+            return null;
+        });
+        try (val cache = function.persistentlyCached(path, PersistentCache.Codec.STRING, PersistentCache.Codec.STRING)) {
+            assertNull(cache.apply("null"));
+            assertNull(cache.apply("null"));
+            try {
+                cache.apply("");
+                fail("Expect an exception.");
+            } catch (IOException e) {
+                // This is expected.
+            }
+            assertEquals(0, cache.size());
+            assertEquals(3, counter.get());
+        }
+    }
+    
+    @Test
+    public void testNotCacheFile() throws IOException {
+        val path = folder.getRoot().toPath().resolve("other.bin");
+        Files.write(path, "This is not a cache file.".getBytes());
+        try {
+            Failables.Function.of((String s)->s).persistentlyCached(path, PersistentCache.Codec.STRING, PersistentCache.Codec.STRING);
+            fail("Expect an exception.");
+        } catch (IOException e) {
+            // This is expected.
+        }
+    }
+    
+    @Test
+    public void testSecondCache_onSameFile() throws IOException {
+        val path     = folder.getRoot().toPath().resolve("cache.bin");
+        val function = Failables.Function.<String, String, RuntimeException>of(s->"#" + s);
+        
+        try (val cache = function.persistentlyCached(path, PersistentCache.Codec.STRING, PersistentCache.Codec.STRING)) {
+            assertEquals("#one", cache.apply("one"));
+            try {
+                function.persistentlyCached(path, PersistentCache.Codec.STRING, PersistentCache.Codec.STRING);
+                fail("Expect an exception.");
+            } catch (IOException e) {
+            }
+        }
+        try (val cache = function.persistentlyCached(path, PersistentCache.Codec.STRING, PersistentCache.Codec.STRING)) {
+            assertEquals(1, cache.size());
+        }
+    }
+    
+}
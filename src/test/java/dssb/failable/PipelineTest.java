@@ -0,0 +1,146 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import lombok.val;
+
+@SuppressWarnings("javadoc")
+public class PipelineTest {
+    
+    @Test
+    public void testPipeline_inOrder() {
+        for (val waitStrategy : Pipeline.WaitStrategy.values()) {
+            val results  = new ArrayList<String>();
+            val failures = Collections.synchronizedList(new ArrayList<Pipeline.Failure>());
+            val pipeline = Pipeline.from((Integer i) -> i * 2)
+                    .then(i -> "#" + i)
+                    .to(results::add)
+                    .start(4, waitStrategy, failures::add);
+            for (int i = 0; i < 1000; i++)
+                pipeline.publish(i);
+            pipeline.close();
+            
+            assertEquals(1000, results.size());
+            assertEquals("#0",    results.get(0));
+            assertEquals("#1998", results.get(999));
+            assertEquals("[]",    failures.toString());
+        }
+    }
+    
+    @Test
+    public void testPipeline_deadLetterAndDrop() {
+        val results  = new ArrayList<Integer>();
+        val failures = Collections.synchronizedList(new ArrayList<String>());
+        val pipeline = Pipeline.from((Integer i) -> (i % 3 == 0) ? null : i)
+                .then((Integer i) -> {
+                    if (i == 5)
+                        throw new IOException("Five");
+                    return i;
+                })
+                .to(results::add)
+                .start(8, Pipeline.WaitStrategy.YIELDING, failure -> {
+                    failures.add(failure.getStage() + ":" + failure.getItem() + ":" + failure.getCause().getMessage());
+                });
+        for (int i = 0; i < 8; i++)
+            pipeline.publish(i);
+        pipeline.close();
+        
+        assertEquals("[1, 2, 4, 7]", results.toString());
+        assertEquals("[1:5:Five]",   failures.toString());
+    }
+    
+    @Test
+    public void testPipeline_multipleProducers() throws InterruptedException {
+        val results   = new ArrayList<Integer>();
+        val failures  = Collections.synchronizedList(new ArrayList<Pipeline.Failure>());
+        val pipeline  = Pipeline.from((Integer i) -> i)
+                .to(results::add)
+                .start(16, Pipeline.WaitStrategy.PARKING, failures::add);
+        val producers = Executors.newFixedThreadPool(4);
+        for (int p = 0; p < 4; p++) {
+            val base = p * 1000;
+            producers.execute(() -> {
+                for (int i = 0; i < 1000; i++)
+                    pipeline.publish(base + i);
+            });
+        }
+        producers.shutdown();
+        producers.awaitTermination(10, TimeUnit.SECONDS);
+        pipeline.close();
+        
+        assertEquals(4000, results.size());
+        assertEquals("[]", failures.toString());
+        // Items from the same producer keep their order.
+        val next = new int[4];
+        for (val result : results)
+            assertEquals(next[result / 1000]++, result % 1000);
+    }
+    
+    @Test
+    public void testPublish_closed() {
+        val pipeline = Pipeline.from((Integer i) -> i)
+                .start(4, Pipeline.WaitStrategy.BUSY_SPIN, failure -> {});
+        pipeline.close();
+        try {
+            pipeline.publish(1);
+            fail("Expect an exception.");
+        } catch (IllegalStateException e) {
+        }
+    }
+    
+    @Test
+    public void testClose_whilePublishing() throws InterruptedException {
+        val results   = new ArrayList<Integer>();
+        val published = new AtomicInteger(0);
+        val pipeline  = Pipeline.from((Integer i) -> i)
+                .to(results::add)
+                .start(4, Pipeline.WaitStrategy.YIELDING, failure -> {});
+        val producers = Executors.newFixedThreadPool(4);
+        for (int p = 0; p < 4; p++) {
+            producers.execute(() -> {
+                try {
+                    while (true) {
+                        pipeline.publish(1);
+                        published.incrementAndGet();
+                    }
+                } catch (IllegalStateException e) {
+                    // Closed.
+                }
+            });
+        }
+        Thread.sleep(50);
+        pipeline.close();
+        producers.shutdown();
+        assertTrue(producers.awaitTermination(10, TimeUnit.SECONDS));
+        
+        // Every publish that returned went through.
+        assertEquals(published.get(), results.size());
+    }
+    
+}
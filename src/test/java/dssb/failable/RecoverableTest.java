@@ -0,0 +1,105 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import lombok.val;
+
+@SuppressWarnings("javadoc")
+public class RecoverableTest {
+    
+    @Test
+    public void testSupplier_closestHandlerWins() throws Exception {
+        val supplier = Failables.Supplier.<String, Exception>of(()->{ throw new FileNotFoundException(); })
+                .recover(Exception.class,             e->"exception")
+                .recover(IOException.class,           e->"io")
+                .recover(FileNotFoundException.class, e->"not-found");
+        assertEquals("not-found", supplier.get());
+        
+        val other = Failables.Supplier.<String, Exception>of(()->{ throw new TimeoutException(); })
+                .recover(IOException.class, e->"io")
+                .recoverWith(Exception.class, ()->"fallback");
+        assertEquals("fallback", other.get());
+    }
+    
+    @Test
+    public void testSupplier_noMatch_rethrowOriginal() {
+        val exception = new FailableException(new TimeoutException());
+        val supplier  = Failables.Supplier.<String, IOException>of(()->{ throw exception; })
+                .recover(IOException.class, e->"io");
+        try {
+            supplier.get();
+            fail("Expect an exception.");
+        } catch (FailableException e) {
+            assertSame(exception, e);
+        } catch (IOException e) {
+            fail("Expect the original exception.");
+        }
+    }
+    
+    @Test
+    public void testFunction_unwrapFailableException() throws IOException {
+        val function = Failables.Function.<Integer, String, IOException>of(i->{
+                    throw new FailableException(new IOException("" + i));
+                })
+                .recover(IOException.class, e->"recovered:" + e.getMessage());
+        assertEquals("recovered:42", function.apply(42));
+        
+        val fallback = Failables.Function.<Integer, String, IOException>of(i->{ throw new IOException(); })
+                .recoverWith(IOException.class, i->"fallback:" + i);
+        assertEquals("fallback:42", fallback.apply(42));
+    }
+    
+    @Test
+    public void testBiFunction() throws IOException {
+        val division = Failables.BiFunction.<Integer, Integer, Integer, IOException>of((a, b)->a / b)
+                .recover(ArithmeticException.class, e->Integer.MAX_VALUE);
+        assertEquals(5,                 division.apply(10, 2).intValue());
+        assertEquals(Integer.MAX_VALUE, division.apply(10, 0).intValue());
+        
+        val subtract = Failables.BiFunction.<Integer, Integer, Integer, IOException>of((a, b)->{ throw new IOException(); })
+                .recoverWith(IOException.class, (a, b)->a - b);
+        assertEquals(8, subtract.apply(10, 2).intValue());
+    }
+    
+    @Test
+    public void testDeadlineExceeded_notRecovered() throws Throwable {
+        val function = Failables.Function.<Integer, String, Exception>of(i->{
+                    Thread.sleep(100);
+                    Deadline.check();
+                    return "done";
+                })
+                .recover(Throwable.class,        e->"throwable")
+                .recover(RuntimeException.class, e->"runtime");
+        try {
+            Deadline.after(20, TimeUnit.MILLISECONDS).call(()->function.apply(1));
+            fail("Expect an exception.");
+        } catch (DeadlineExceededException e) {
+            assertSame(DeadlineExceededException.INSTANCE, e);
+        }
+    }
+    
+}
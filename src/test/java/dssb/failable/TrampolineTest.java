@@ -0,0 +1,83 @@
+//  ========================================================================
+//  Copyright (c) 2017 Direct Solution Software Builders (DSSB).
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+package dssb.failable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import lombok.val;
+
+@SuppressWarnings("javadoc")
+public class TrampolineTest {
+    
+    private static final int DEPTH = 200_000;
+    
+    private static final class Node {
+        final Node left;
+        final Node right;
+        Node(Node left, Node right) {
+            this.left  = left;
+            this.right = right;
+        }
+    }
+    
+    @Test
+    public void testFunction_deepRecursion() {
+        val sum = Trampoline.<Long, Long, RuntimeException>function((self, n) ->
+            (n == 0) ? Trampoline.done(0L) : self.apply(n - 1).map(s -> s + n));
+        assertEquals(DEPTH * (DEPTH + 1L) / 2, (long)sum.apply((long)DEPTH));
+    }
+    
+    @Test
+    public void testFunction_treeWalk() {
+        Node tree = new Node(null, null);
+        for (int i = 1; i < DEPTH; i++)
+            tree = (i % 2 == 0) ? new Node(tree, null) : new Node(null, tree);
+        
+        val size = Trampoline.<Node, Integer, RuntimeException>function((self, node) ->
+            (node == null)
+                ? Trampoline.done(0)
+                : self.apply(node.left).flatMap(left -> self.apply(node.right).map(right -> left + right + 1)));
+        assertEquals(DEPTH, (int)size.apply(tree));
+    }
+    
+    @Test
+    public void testBiFunction_accumulate() {
+        val sum = Trampoline.<Long, Long, Long, RuntimeException>biFunction((self, n, total) ->
+            (n == 0) ? Trampoline.done(total) : self.apply(n - 1, total + n));
+        assertEquals(DEPTH * (DEPTH + 1L) / 2, (long)sum.apply((long)DEPTH, 0L));
+    }
+    
+    @Test
+    public void testFunction_checkedException() {
+        val countDown = Trampoline.<Integer, Integer, IOException>function((self, n) -> {
+            if (n == 0)
+                throw new IOException("Bottom");
+            return self.apply(n - 1);
+        });
+        try {
+            countDown.apply(DEPTH);
+            fail("Expect an exception.");
+        } catch (IOException e) {
+            assertEquals("Bottom", e.getMessage());
+        }
+    }
+    
+}